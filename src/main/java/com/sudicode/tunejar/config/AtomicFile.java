@@ -0,0 +1,71 @@
+package com.sudicode.tunejar.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Replaces files without ever leaving a truncated one behind. The new contents are written to a temporary file next to
+ * the target, which is then renamed over it; atomically, unless the file system does not support that.
+ */
+public final class AtomicFile {
+
+    private static final Logger logger = LoggerFactory.getLogger(AtomicFile.class);
+
+    /**
+     * Illegal.
+     */
+    private AtomicFile() {
+    }
+
+    /**
+     * Replaces the contents of a file, creating it (and its parent directories) if needed. The file is left untouched
+     * if this fails.
+     *
+     * @param target The file
+     * @param writer Writes the new contents
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(File target, Writer writer) throws IOException {
+        File tmp = new File(target.getPath() + ".tmp");
+        try {
+            Files.createDirectories(target.getAbsoluteFile().getParentFile().toPath());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                writer.write(out);
+            }
+            try {
+                Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            if (tmp.exists() && !tmp.delete()) {
+                logger.warn("Failed to delete temporary file: " + tmp);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the new contents of a file.
+     */
+    @FunctionalInterface
+    public interface Writer {
+
+        /**
+         * @param out The temporary file
+         * @throws IOException if an I/O error occurs
+         */
+        void write(DataOutputStream out) throws IOException;
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.sudicode.tunejar.config;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.prefs.Preferences;
+
+/**
+ * Stores byte arrays of any size in a {@link Preferences} node. Byte arrays are Base64 encoded, and each value is
+ * limited to {@link Preferences#MAX_VALUE_LENGTH} characters, so a large array is split into chunks stored under
+ * <code>key.0</code>, <code>key.1</code>, and so on, with the number of chunks stored under <code>key.chunks</code>.
+ * Arrays which fit into a single value are stored under the key itself, exactly as
+ * {@link Preferences#putByteArray(String, byte[])} would, so existing values remain readable.
+ */
+final class ChunkedStorage {
+
+    /**
+     * Largest byte array whose Base64 encoding fits into a single value.
+     */
+    static final int CHUNK_SIZE = Preferences.MAX_VALUE_LENGTH / 4 * 3;
+
+    private static final String CHUNKS = ".chunks";
+
+    /**
+     * Illegal.
+     */
+    private ChunkedStorage() {
+    }
+
+    /**
+     * Reads a byte array written by {@link #putByteArray(Preferences, String, byte[])}.
+     *
+     * @param prefs The {@link Preferences} node
+     * @param key   The key
+     * @param def   Returned if there is no value, or if a chunk is missing
+     * @return The byte array
+     */
+    static byte[] getByteArray(Preferences prefs, String key, byte[] def) {
+        int chunks = prefs.getInt(key + CHUNKS, -1);
+        if (chunks < 0) {
+            return prefs.getByteArray(key, def);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(chunks * CHUNK_SIZE);
+        for (int i = 0; i < chunks; i++) {
+            byte[] chunk = prefs.getByteArray(key + "." + i, null);
+            if (chunk == null) {
+                return def;
+            }
+            out.write(chunk, 0, chunk.length);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes a byte array of any size.
+     *
+     * @param prefs The {@link Preferences} node
+     * @param key   The key
+     * @param value The byte array
+     */
+    static void putByteArray(Preferences prefs, String key, byte[] value) {
+        int oldChunks = prefs.getInt(key + CHUNKS, 0);
+        int newChunks = 0;
+        if (value.length <= CHUNK_SIZE) {
+            prefs.putByteArray(key, value);
+            prefs.remove(key + CHUNKS);
+        } else {
+            for (int from = 0; from < value.length; from += CHUNK_SIZE) {
+                prefs.putByteArray(key + "." + newChunks++,
+                        Arrays.copyOfRange(value, from, Math.min(value.length, from + CHUNK_SIZE)));
+            }
+            prefs.putInt(key + CHUNKS, newChunks);
+            prefs.remove(key);
+        }
+
+        // Remove leftovers of a previous, larger value.
+        for (int i = newChunks; i < oldChunks; i++) {
+            prefs.remove(key + "." + i);
+        }
+    }
+
+}
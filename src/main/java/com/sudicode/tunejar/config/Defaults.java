@@ -4,7 +4,6 @@ import com.google.common.collect.ImmutableMap;
 import com.sudicode.tunejar.player.Player;
 
 import java.io.File;
-import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.prefs.Preferences;
@@ -20,9 +19,89 @@ public final class Defaults {
     public static final LinkedHashSet<File> DIRECTORIES = new LinkedHashSet<>();
 
     /**
-     * Timeout (in seconds) for refreshing.
+     * Time (in milliseconds) that the music directories must be quiet before file system changes are applied.
      */
-    public static final long TIMEOUT = 5L * 60;
+    public static final long WATCHER_QUIET_PERIOD = 1000;
+
+    /**
+     * Interval (in seconds) at which the music directories are reconciled against the library.
+     */
+    public static final long RECONCILE_INTERVAL = 10L * 60;
+
+    /**
+     * Publish songs to the song table while the library is being scanned?
+     */
+    public static final boolean STREAMING_REFRESH = true;
+
+    /**
+     * Maximum number of songs published to the song table at once during a streaming refresh.
+     */
+    public static final int REFRESH_BATCH_SIZE = 500;
+
+    /**
+     * Maximum time (in milliseconds) that a scanned song waits before being published to the song table.
+     */
+    public static final long REFRESH_BATCH_INTERVAL = 100;
+
+    /**
+     * Number of playlist songs outside of the music directories which each parse task handles.
+     */
+    public static final int PLAYLIST_PARSE_BATCH_SIZE = 32;
+
+    /**
+     * Number of threads which parse audio files while scanning the library.
+     */
+    public static final int SCAN_THREADS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Maximum number of directories listed at once within each music directory while scanning the library. Listing is
+     * bound by I/O latency rather than CPU, so this is not tied to the number of processors.
+     */
+    public static final int WALK_THREADS = 4;
+
+    /**
+     * Maximum number of entries which may be listed ahead of the visitor within each music directory while scanning
+     * the library. Bounds the memory held by listings which have not been visited yet.
+     */
+    public static final int WALK_BUFFER_SIZE = 4096;
+
+    /**
+     * Maximum number of threads for long running background jobs, such as refreshing the library. Must be at least 2,
+     * since a refresh occupies one thread while its directory walker occupies another.
+     */
+    public static final int TASK_THREADS = 4;
+
+    /**
+     * Number of threads which list directories, shared by all music directories.
+     */
+    public static final int IO_THREADS = 16;
+
+    /**
+     * Capacity of each queue in the scan pipeline. Bounds the number of files in flight during a scan.
+     */
+    public static final int SCAN_QUEUE_CAPACITY = 256;
+
+    /**
+     * Largest number of songs which a search moves to the top of the song table.
+     */
+    public static final int SEARCH_RESULTS = 1000;
+
+    /**
+     * Time (in milliseconds) that the filter field must stay unchanged before the song table is filtered.
+     */
+    public static final long FILTER_DELAY = 150;
+
+    /**
+     * Minimum time (in milliseconds) between two rounds of updates from background threads to the user interface.
+     * This is one frame at 60 frames per second.
+     */
+    public static final long UI_FRAME_INTERVAL = 16;
+
+    /**
+     * Number of recently played or upcoming songs whose media is kept, so that playing them again does not open the
+     * file again.
+     */
+    public static final int MEDIA_CACHE_SIZE = 8;
 
     /**
      * Path to the TuneJar icon.
@@ -81,14 +160,14 @@ public final class Defaults {
     public static final boolean SHUFFLE = false;
 
     /**
-     * Data structure to store playlists. Maps playlist titles to their respective M3U strings.
+     * Used to instantiate {@link Options}.
      */
-    public static final LinkedHashMap<String, String> PLAYLISTS = new LinkedHashMap<>();
+    public static final Preferences PREFERENCES_NODE = Preferences.userNodeForPackage(Options.class);
 
     /**
-     * Used to instantiate {@link Options}.
+     * Time (in milliseconds) that changed options are buffered before being written to {@link #PREFERENCES_NODE}.
      */
-    public static final Preferences PREFERENCES_NODE = Preferences.userNodeForPackage(Options.class);
+    public static final long FLUSH_INTERVAL = 1000;
 
     /**
      * Width of the player.
@@ -105,6 +184,21 @@ public final class Defaults {
      */
     public static final boolean MAXIMIZED = false;
 
+    /**
+     * Directory in which TuneJar keeps its data files.
+     */
+    public static final File DATA_DIRECTORY = new File(System.getProperty("user.home"), ".tunejar");
+
+    /**
+     * File which caches the metadata of every song in the library.
+     */
+    public static final File TAG_CACHE = new File(DATA_DIRECTORY, "tags.cache");
+
+    /**
+     * Directory which holds the playlists.
+     */
+    public static final File PLAYLIST_DIRECTORY = new File(DATA_DIRECTORY, "playlists");
+
     /**
      * Illegal.
      */
@@ -1,33 +1,133 @@
 package com.sudicode.tunejar.config;
 
 import javafx.scene.control.TableColumn.SortType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.prefs.BackingStoreException;
 import java.util.prefs.Preferences;
+import java.util.stream.Collectors;
 
 import static org.apache.commons.lang3.SerializationUtils.*;
 
 /**
  * The {@link Options} object is a set of getter/setter pairs which safely
- * interact with a {@link Preferences} node.
+ * interact with a {@link Preferences} node. Byte arrays go through
+ * {@link ChunkedStorage}, so they are not limited by
+ * {@link Preferences#MAX_VALUE_LENGTH}. Playlists are too large for
+ * {@link Preferences}, so they are kept in a {@link PlaylistStore} instead.
+ * Once {@link #writeBehind(ScheduledExecutorService)} is called, setters only
+ * update memory, and the backing store is written in the background.
  */
 public final class Options {
 
+    private static final Logger logger = LoggerFactory.getLogger(Options.class);
+
     /**
      * {@link Preferences} node.
      */
     private Preferences prefs;
 
+    /**
+     * Playlist storage.
+     */
+    private final PlaylistStore playlistStore;
+
     /**
      * Construct a new {@link Options} object.
      *
      * @param prefs {@link Preferences} node to use
      */
     public Options(final Preferences prefs) {
+        this(prefs, new PlaylistStore(Defaults.PLAYLIST_DIRECTORY));
+    }
+
+    /**
+     * Construct a new {@link Options} object.
+     *
+     * @param prefs         {@link Preferences} node to use
+     * @param playlistStore {@link PlaylistStore} to use
+     */
+    public Options(final Preferences prefs, final PlaylistStore playlistStore) {
         this.prefs = prefs;
+        this.playlistStore = playlistStore;
+        migratePlaylists();
+    }
+
+    /**
+     * Moves playlists saved by older versions, which kept them all in one
+     * {@link Preferences} value, into the {@link PlaylistStore}. If they
+     * cannot be written, they are kept where they are and moved on the next
+     * start.
+     */
+    private void migratePlaylists() {
+        byte[] buff = prefs.getByteArray("playlists", null);
+        if (buff == null) {
+            return;
+        }
+        if (playlistStore.isEmpty()) {
+            LinkedHashMap<String, String> m3uStrings = deserialize(buff);
+            LinkedHashMap<String, List<String>> playlists = new LinkedHashMap<>();
+            m3uStrings.forEach((name, m3uString) -> playlists.put(name, Arrays.stream(m3uString.split("\\R"))
+                    .filter(line -> !line.isEmpty()).collect(Collectors.toList())));
+            try {
+                playlistStore.replaceAll(playlists);
+            } catch (UncheckedIOException e) {
+                logger.error("Failed to migrate playlists to the playlist store.", e);
+                return;
+            }
+            logger.info("Migrated {} playlists to the playlist store.", playlists.size());
+        }
+        prefs.remove("playlists");
+    }
+
+    /**
+     * Buffers every further change, and writes the changes to the backing
+     * store on a background thread, once per {@link #getFlushInterval()} at
+     * most. Call {@link #flush()} before the executor shuts down.
+     *
+     * @param executor Executor which writes the changes
+     */
+    public void writeBehind(final ScheduledExecutorService executor) {
+        if (!(prefs instanceof WriteBehindPreferences)) {
+            prefs = new WriteBehindPreferences(prefs, executor, getFlushInterval());
+        }
+    }
+
+    /**
+     * Writes any buffered changes to the backing store.
+     */
+    public void flush() {
+        try {
+            prefs.flush();
+        } catch (BackingStoreException e) {
+            logger.error("Failed to save options", e);
+        }
+    }
+
+    /**
+     * @return Time (in milliseconds) that changes are buffered before being written to the backing store.
+     */
+    public long getFlushInterval() {
+        return prefs.getLong("flushInterval", Defaults.FLUSH_INTERVAL);
+    }
+
+    /**
+     * @param flushInterval Time (in milliseconds) that changes are buffered before being written to the backing
+     *                      store. Takes effect the next time the player starts.
+     */
+    public void setFlushInterval(final long flushInterval) {
+        prefs.putLong("flushInterval", flushInterval);
     }
 
     /**
@@ -48,15 +148,25 @@ public final class Options {
      * @return Music directories.
      */
     public LinkedHashSet<File> getDirectories() {
-        byte[] buff = prefs.getByteArray("directories", null);
-        return buff != null ? deserialize(buff) : Defaults.DIRECTORIES;
+        byte[] buff = ChunkedStorage.getByteArray(prefs, "directories", null);
+        if (buff == null) {
+            return Defaults.DIRECTORIES;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(buff);
+        if (!PathListCodec.isEncoded(buffer)) {
+            return deserialize(buff); // Saved by an older version
+        }
+        LinkedHashSet<File> directories = new LinkedHashSet<>();
+        PathListCodec.decode(buffer).forEach(path -> directories.add(new File(path)));
+        return directories;
     }
 
     /**
      * @param directories Music directories to use.
      */
     public void setDirectories(final LinkedHashSet<File> directories) {
-        prefs.putByteArray("directories", serialize(directories));
+        List<String> paths = directories.stream().map(File::getPath).collect(Collectors.toList());
+        ChunkedStorage.putByteArray(prefs, "directories", PathListCodec.encode(paths));
     }
 
     /**
@@ -77,7 +187,7 @@ public final class Options {
      * @return Current sort order (Title / Artist / Album).
      */
     public String[] getSortOrder() {
-        byte[] buff = prefs.getByteArray("sortOrder", null);
+        byte[] buff = ChunkedStorage.getByteArray(prefs, "sortOrder", null);
         return buff != null ? deserialize(buff) : Defaults.SORT_ORDER;
     }
 
@@ -85,14 +195,14 @@ public final class Options {
      * @param sorts Sort order to use (Title / Artist / Album).
      */
     public void setSortOrder(final String... sorts) {
-        prefs.putByteArray("sortOrder", serialize(sorts));
+        ChunkedStorage.putByteArray(prefs, "sortOrder", serialize(sorts));
     }
 
     /**
      * @return Current order of the columns.
      */
     public String[] getColumnOrder() {
-        byte[] buff = prefs.getByteArray("columnOrder", null);
+        byte[] buff = ChunkedStorage.getByteArray(prefs, "columnOrder", null);
         return buff != null ? deserialize(buff) : Defaults.COLUMN_ORDER;
     }
 
@@ -100,7 +210,7 @@ public final class Options {
      * @param columns Column order to use.
      */
     public void setColumnOrder(final String... columns) {
-        prefs.putByteArray("columnOrder", serialize(columns));
+        ChunkedStorage.putByteArray(prefs, "columnOrder", serialize(columns));
     }
 
     /**
@@ -181,18 +291,102 @@ public final class Options {
     }
 
     /**
-     * @return Map of playlist titles to their respective M3U strings.
+     * @return <code>true</code> if songs are published to the song table while the library is being scanned.
      */
-    public LinkedHashMap<String, String> getPlaylists() {
-        byte[] buff = prefs.getByteArray("playlists", null);
-        return buff != null ? deserialize(buff) : Defaults.PLAYLISTS;
+    public boolean isStreamingRefresh() {
+        return prefs.getBoolean("streamingRefresh", Defaults.STREAMING_REFRESH);
+    }
+
+    /**
+     * @param streamingRefresh <code>true</code> to publish songs to the song table while the library is being scanned.
+     */
+    public void setStreamingRefresh(final boolean streamingRefresh) {
+        prefs.putBoolean("streamingRefresh", streamingRefresh);
+    }
+
+    /**
+     * @return Number of threads which parse audio files while scanning the library.
+     */
+    public int getScanThreads() {
+        return prefs.getInt("scanThreads", Defaults.SCAN_THREADS);
     }
 
     /**
-     * @param playlists Map of playlist titles to their respective M3U strings.
+     * @param scanThreads Number of threads which parse audio files while scanning the library.
      */
-    public void setPlaylists(final LinkedHashMap<String, String> playlists) {
-        prefs.putByteArray("playlists", serialize(playlists));
+    public void setScanThreads(final int scanThreads) {
+        prefs.putInt("scanThreads", scanThreads);
+    }
+
+    /**
+     * @return Maximum number of directories listed at once within each music directory while scanning the library.
+     */
+    public int getWalkThreads() {
+        return prefs.getInt("walkThreads", Defaults.WALK_THREADS);
+    }
+
+    /**
+     * @param walkThreads Maximum number of directories listed at once within each music directory while scanning the
+     *                    library.
+     */
+    public void setWalkThreads(final int walkThreads) {
+        prefs.putInt("walkThreads", walkThreads);
+    }
+
+    /**
+     * @return Map of playlist titles to the absolute paths of their songs.
+     */
+    public LinkedHashMap<String, List<String>> getPlaylists() {
+        return playlistStore.loadAll();
+    }
+
+    /**
+     * Reads every playlist in parallel.
+     *
+     * @param executor Executor which reads the playlists
+     * @return Map of playlist titles to the absolute paths of their songs.
+     * @throws InterruptedException if the current thread was interrupted while waiting
+     */
+    public LinkedHashMap<String, List<String>> getPlaylists(final ExecutorService executor)
+            throws InterruptedException {
+        return playlistStore.loadAll(executor);
+    }
+
+    /**
+     * @param playlists Map of playlist titles to the absolute paths of their songs.
+     * @throws UncheckedIOException if a playlist cannot be written.
+     */
+    public void setPlaylists(final LinkedHashMap<String, List<String>> playlists) {
+        playlistStore.replaceAll(playlists);
+    }
+
+    /**
+     * Saves a single playlist, without touching the others.
+     *
+     * @param name  Title of the playlist
+     * @param paths Absolute paths of the songs in the playlist
+     * @throws UncheckedIOException if the playlist cannot be written.
+     */
+    public void savePlaylist(final String name, final List<String> paths) {
+        playlistStore.save(name, paths);
+    }
+
+    /**
+     * @param oldName Current title of the playlist
+     * @param newName New title of the playlist
+     * @throws IllegalArgumentException if another playlist already has the new title.
+     * @throws UncheckedIOException     if the playlists cannot be written.
+     */
+    public void renamePlaylist(final String oldName, final String newName) {
+        playlistStore.rename(oldName, newName);
+    }
+
+    /**
+     * @param name Title of the playlist to delete
+     * @throws UncheckedIOException if the playlists cannot be written.
+     */
+    public void deletePlaylist(final String name) {
+        playlistStore.delete(name);
     }
 
     /**
@@ -238,13 +432,19 @@ public final class Options {
     }
 
     /**
-     * Clears all key-value mappings in the {@link Preferences} node.
+     * Clears all key-value mappings in the {@link Preferences} node, and
+     * deletes every playlist.
      *
      * @throws BackingStoreException if this operation cannot be completed due to a failure in the backing store, or
      *                               inability to communicate with it.
      */
     public void clear() throws BackingStoreException {
         prefs.clear();
+        try {
+            playlistStore.replaceAll(Collections.emptyMap());
+        } catch (UncheckedIOException e) {
+            throw new BackingStoreException(e.getCause());
+        }
     }
 
 }
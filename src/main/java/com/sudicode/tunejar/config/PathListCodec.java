@@ -0,0 +1,188 @@
+package com.sudicode.tunejar.config;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact, versioned binary encoding for lists of file paths, such as playlists. Paths in a music library share long
+ * prefixes, so every directory is stored once, in a dictionary, as a reference to its parent directory plus its own
+ * name. Each path is then a reference to its directory plus its file name. All references and lengths are varints.
+ * <p>
+ * Layout (all integers are unsigned LEB128 varints unless noted otherwise):
+ * <pre>
+ * magic (4 bytes, big endian)  version (1 byte)
+ * directory count, then for each directory: parent (0 = none, otherwise index + 1), name length, name (UTF-8)
+ * path count, then for each path: directory (0 = none, otherwise index + 1), name length, name (UTF-8)
+ * </pre>
+ * A directory always comes after its parent, so the whole thing decodes in a single pass. Directory names keep their
+ * trailing separator, so paths are rebuilt by concatenation, whatever the platform.
+ */
+public final class PathListCodec {
+
+    private static final int MAGIC = 0x544A504C; // "TJPL"
+    private static final int VERSION = 1;
+
+    /**
+     * Illegal.
+     */
+    private PathListCodec() {
+    }
+
+    /**
+     * Encodes a list of paths.
+     *
+     * @param paths The paths
+     * @return The encoded bytes
+     */
+    public static byte[] encode(List<String> paths) {
+        Map<String, Integer> directories = new HashMap<>();
+        ByteArrayOutputStream dictionary = new ByteArrayOutputStream();
+        ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        for (String path : paths) {
+            int split = lastSeparator(path) + 1;
+            writeVarint(entries, directory(path.substring(0, split), directories, dictionary));
+            writeString(entries, path.substring(split));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(dictionary.size() + entries.size() + 16);
+        out.write(MAGIC >>> 24);
+        out.write(MAGIC >>> 16);
+        out.write(MAGIC >>> 8);
+        out.write(MAGIC);
+        out.write(VERSION);
+        writeVarint(out, directories.size());
+        out.write(dictionary.toByteArray(), 0, dictionary.size());
+        writeVarint(out, paths.size());
+        out.write(entries.toByteArray(), 0, entries.size());
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a list of paths in a single pass.
+     *
+     * @param buffer The encoded bytes, from the current position to the limit
+     * @return The paths
+     * @throws IllegalArgumentException if the bytes are not a supported encoding
+     */
+    public static List<String> decode(ByteBuffer buffer) {
+        if (!isEncoded(buffer)) {
+            throw new IllegalArgumentException("Not an encoded path list");
+        }
+        buffer.position(buffer.position() + 4);
+        int version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported path list version: " + version);
+        }
+
+        try {
+            String[] directories = new String[checkLength(buffer, readVarint(buffer))];
+            for (int i = 0; i < directories.length; i++) {
+                directories[i] = prefix(directories, readVarint(buffer)) + readString(buffer);
+            }
+            int count = checkLength(buffer, readVarint(buffer));
+            List<String> paths = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                paths.add(prefix(directories, readVarint(buffer)) + readString(buffer));
+            }
+            return paths;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated path list", e);
+        }
+    }
+
+    /**
+     * @param buffer Some bytes, from the current position to the limit
+     * @return <code>true</code> if the bytes start like an encoded path list.
+     */
+    public static boolean isEncoded(ByteBuffer buffer) {
+        return buffer.remaining() >= 5 && buffer.getInt(buffer.position()) == MAGIC;
+    }
+
+    /**
+     * Finds or adds a directory (and its ancestors) in the dictionary.
+     *
+     * @return 0 for the empty directory, otherwise the index of the directory plus one
+     */
+    private static int directory(String directory, Map<String, Integer> directories, ByteArrayOutputStream dictionary) {
+        if (directory.isEmpty()) {
+            return 0;
+        }
+        Integer ref = directories.get(directory);
+        if (ref == null) {
+            int split = lastSeparator(directory.substring(0, directory.length() - 1)) + 1;
+            int parent = directory(directory.substring(0, split), directories, dictionary);
+            writeVarint(dictionary, parent);
+            writeString(dictionary, directory.substring(split));
+            ref = directories.size() + 1;
+            directories.put(directory, ref);
+        }
+        return ref;
+    }
+
+    private static String prefix(String[] directories, int ref) {
+        if (ref < 0 || ref > directories.length || (ref > 0 && directories[ref - 1] == null)) {
+            throw new IllegalArgumentException("Invalid directory reference: " + ref);
+        }
+        return ref == 0 ? "" : directories[ref - 1];
+    }
+
+    private static int lastSeparator(String path) {
+        return Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\'));
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Every element takes at least one byte, so a count or length larger than what is left must be corrupt.
+     */
+    private static int checkLength(ByteBuffer buffer, int length) {
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        return length;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = checkLength(buffer, readVarint(buffer));
+        if (buffer.hasArray()) {
+            String s = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                    StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return s;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+}
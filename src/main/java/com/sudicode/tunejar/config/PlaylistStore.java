@@ -0,0 +1,271 @@
+package com.sudicode.tunejar.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Stores each playlist in its own file, so that saving a playlist only writes that playlist. An index file holds the
+ * playlist names, in order, along with the number of the file which holds each playlist; it is only written when a
+ * playlist is created, renamed, or deleted. Every file is replaced through {@link AtomicFile}, so a crash cannot leave
+ * a half written playlist behind. Playlist files are encoded by {@link PathListCodec}. A file which cannot be written
+ * fails the change with an {@link UncheckedIOException}, and the index in memory is left as it is on disk.
+ */
+public final class PlaylistStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlaylistStore.class);
+
+    private static final int MAGIC = 0x544A5049; // "TJPI"
+    private static final int VERSION = 1;
+    private static final String INDEX = "index";
+    private static final String EXTENSION = ".tjpl";
+
+    private final File directory;
+
+    /**
+     * Maps playlist names to file numbers. Loaded on first use.
+     */
+    private LinkedHashMap<String, Integer> index;
+    private int nextId;
+
+    /**
+     * Constructor.
+     *
+     * @param directory Directory which holds the playlist files
+     */
+    public PlaylistStore(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return The playlist names, in the order in which they were created.
+     */
+    public synchronized List<String> getNames() {
+        return new ArrayList<>(index().keySet());
+    }
+
+    /**
+     * @return <code>true</code> if there are no playlists.
+     */
+    public synchronized boolean isEmpty() {
+        return index().isEmpty();
+    }
+
+    /**
+     * Reads one playlist.
+     *
+     * @param name Name of the playlist
+     * @return The absolute paths of the songs in the playlist, or <code>null</code> if there is no such playlist
+     */
+    public List<String> load(String name) {
+        int id;
+        synchronized (this) {
+            Integer ref = index().get(name);
+            if (ref == null) {
+                return null;
+            }
+            id = ref;
+        }
+        File file = playlistFile(id);
+        try {
+            if (file.isFile()) {
+                return PathListCodec.decode(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Failed to load playlist: " + name, e);
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Reads every playlist, in parallel.
+     *
+     * @param executor Executor which reads the playlist files
+     * @return Map of playlist names to the absolute paths of their songs, in order
+     * @throws InterruptedException if the current thread was interrupted while waiting
+     */
+    public LinkedHashMap<String, List<String>> loadAll(ExecutorService executor) throws InterruptedException {
+        Map<String, Future<List<String>>> futures = new LinkedHashMap<>();
+        for (String name : getNames()) {
+            futures.put(name, executor.submit(() -> load(name)));
+        }
+        LinkedHashMap<String, List<String>> playlists = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<String, Future<List<String>>> entry : futures.entrySet()) {
+                playlists.put(entry.getKey(), entry.getValue().get());
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            futures.values().forEach(future -> future.cancel(true));
+        }
+        return playlists;
+    }
+
+    /**
+     * Reads every playlist on the current thread.
+     *
+     * @return Map of playlist names to the absolute paths of their songs, in order
+     */
+    public LinkedHashMap<String, List<String>> loadAll() {
+        LinkedHashMap<String, List<String>> playlists = new LinkedHashMap<>();
+        for (String name : getNames()) {
+            playlists.put(name, load(name));
+        }
+        return playlists;
+    }
+
+    /**
+     * Writes one playlist, creating it if it does not exist yet.
+     *
+     * @param name  Name of the playlist
+     * @param paths The absolute paths of the songs in the playlist
+     * @throws UncheckedIOException if the playlist cannot be written
+     */
+    public synchronized void save(String name, List<String> paths) {
+        Integer id = index().get(name);
+        if (id == null) {
+            id = nextId++;
+            LinkedHashMap<String, Integer> added = new LinkedHashMap<>(index);
+            added.put(name, id);
+            writeIndex(added);
+        }
+        byte[] encoded = PathListCodec.encode(paths);
+        writeAtomically(playlistFile(id), out -> out.write(encoded));
+    }
+
+    /**
+     * Renames a playlist. Only the index is written.
+     *
+     * @param oldName Current name of the playlist
+     * @param newName New name of the playlist
+     * @throws IllegalArgumentException if another playlist is already named <code>newName</code>
+     * @throws UncheckedIOException     if the index cannot be written
+     */
+    public synchronized void rename(String oldName, String newName) {
+        if (!index().containsKey(oldName) || oldName.equals(newName)) {
+            return;
+        }
+        if (index.containsKey(newName)) {
+            throw new IllegalArgumentException("A playlist named " + newName + " already exists.");
+        }
+        LinkedHashMap<String, Integer> renamed = new LinkedHashMap<>();
+        index.forEach((name, id) -> renamed.put(name.equals(oldName) ? newName : name, id));
+        writeIndex(renamed);
+    }
+
+    /**
+     * Deletes a playlist.
+     *
+     * @param name Name of the playlist
+     * @throws UncheckedIOException if the index cannot be written
+     */
+    public synchronized void delete(String name) {
+        if (!index().containsKey(name)) {
+            return;
+        }
+        LinkedHashMap<String, Integer> deleted = new LinkedHashMap<>(index);
+        int id = deleted.remove(name);
+        writeIndex(deleted);
+        deleteFile(playlistFile(id));
+    }
+
+    /**
+     * Replaces every playlist.
+     *
+     * @param playlists Map of playlist names to the absolute paths of their songs
+     * @throws UncheckedIOException if a playlist cannot be written, in which case the playlists before it were
+     *                              already replaced
+     */
+    public synchronized void replaceAll(Map<String, List<String>> playlists) {
+        for (String name : new ArrayList<>(index().keySet())) {
+            if (!playlists.containsKey(name)) {
+                delete(name);
+            }
+        }
+        playlists.forEach(this::save);
+    }
+
+    private LinkedHashMap<String, Integer> index() {
+        if (index == null) {
+            index = readIndex();
+            nextId = index.values().stream().mapToInt(Integer::intValue).max().orElse(-1) + 1;
+        }
+        return index;
+    }
+
+    private LinkedHashMap<String, Integer> readIndex() {
+        LinkedHashMap<String, Integer> result = new LinkedHashMap<>();
+        File file = new File(directory, INDEX);
+        if (!file.isFile()) {
+            return result;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                logger.error("Ignoring incompatible playlist index: " + file);
+                return result;
+            }
+            for (int count = in.readInt(); count > 0; count--) {
+                result.put(in.readUTF(), in.readInt());
+            }
+        } catch (IOException e) {
+            logger.error("Failed to load playlist index: " + file, e);
+        }
+        return result;
+    }
+
+    /**
+     * Writes an index, and makes it the current one once it is on disk.
+     */
+    private void writeIndex(LinkedHashMap<String, Integer> newIndex) {
+        writeAtomically(new File(directory, INDEX), out -> {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(newIndex.size());
+            for (Map.Entry<String, Integer> entry : newIndex.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+        });
+        index = newIndex;
+    }
+
+    private File playlistFile(int id) {
+        return new File(directory, id + EXTENSION);
+    }
+
+    private static void deleteFile(File file) {
+        if (file.exists() && !file.delete()) {
+            logger.error("Failed to delete playlist file: " + file);
+        }
+    }
+
+    /**
+     * Replaces a file through {@link AtomicFile}.
+     *
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    private static void writeAtomically(File target, AtomicFile.Writer writer) {
+        try {
+            AtomicFile.write(target, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write: " + target, e);
+        }
+    }
+
+}
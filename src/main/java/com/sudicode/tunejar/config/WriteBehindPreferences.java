@@ -0,0 +1,166 @@
+package com.sudicode.tunejar.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.prefs.AbstractPreferences;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+/**
+ * {@link Preferences} node which buffers changes in memory, and writes them to another node on a background thread.
+ * Changes to the same key are coalesced, so a burst of updates (such as resizing the window) causes a single write
+ * per key, at most once per flush interval. Reads see pending changes right away. {@link #flush()} writes pending
+ * changes immediately; once the executor has shut down, changes are written through.
+ */
+final class WriteBehindPreferences extends AbstractPreferences {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindPreferences.class);
+
+    /**
+     * Marks a pending removal. Compared by identity.
+     */
+    @SuppressWarnings("RedundantStringConstructorCall")
+    private static final String REMOVED = new String("");
+
+    private final Preferences target;
+    private final ScheduledExecutorService executor;
+    private final long interval;
+
+    /**
+     * Maps keys to their pending values, or to {@link #REMOVED}. Guarded by {@link #lock}.
+     */
+    private final Map<String, String> pending = new LinkedHashMap<>();
+    private boolean scheduled;
+
+    /**
+     * Constructor.
+     *
+     * @param target   Node which pending changes are written to
+     * @param executor Executor which writes pending changes
+     * @param interval Time (in milliseconds) between a change and the write which includes it
+     */
+    WriteBehindPreferences(Preferences target, ScheduledExecutorService executor, long interval) {
+        super(null, "");
+        this.target = target;
+        this.executor = executor;
+        this.interval = interval;
+    }
+
+    @Override
+    protected void putSpi(String key, String value) {
+        pending.put(key, value);
+        schedule();
+    }
+
+    @Override
+    protected String getSpi(String key) {
+        String value = pending.get(key);
+        if (value == REMOVED) {
+            return null;
+        }
+        return value != null ? value : target.get(key, null);
+    }
+
+    @Override
+    protected void removeSpi(String key) {
+        pending.put(key, REMOVED);
+        schedule();
+    }
+
+    @Override
+    protected void removeNodeSpi() {
+        throw new UnsupportedOperationException("Cannot remove a write-behind node");
+    }
+
+    @Override
+    protected String[] keysSpi() throws BackingStoreException {
+        Set<String> keys = new LinkedHashSet<>(Arrays.asList(target.keys()));
+        pending.forEach((key, value) -> {
+            if (value == REMOVED) {
+                keys.remove(key);
+            } else {
+                keys.add(key);
+            }
+        });
+        return keys.toArray(new String[keys.size()]);
+    }
+
+    @Override
+    protected String[] childrenNamesSpi() {
+        return new String[0];
+    }
+
+    @Override
+    protected AbstractPreferences childSpi(String name) {
+        throw new UnsupportedOperationException("Write-behind nodes have no children");
+    }
+
+    @Override
+    protected void syncSpi() throws BackingStoreException {
+        flushSpi();
+    }
+
+    @Override
+    protected void flushSpi() throws BackingStoreException {
+        if (writePending()) {
+            target.flush();
+        }
+    }
+
+    /**
+     * Schedules a flush, unless one is already scheduled. Called with {@link #lock} held.
+     */
+    private void schedule() {
+        if (scheduled) {
+            return;
+        }
+        try {
+            executor.schedule(this::flushQuietly, interval, TimeUnit.MILLISECONDS);
+            scheduled = true;
+        } catch (RejectedExecutionException e) {
+            writePending();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (BackingStoreException | IllegalStateException e) {
+            logger.error("Failed to write preferences", e);
+        }
+    }
+
+    /**
+     * Writes every pending change to the target node.
+     *
+     * @return <code>true</code> if there were any pending changes.
+     */
+    private boolean writePending() {
+        synchronized (lock) {
+            scheduled = false;
+            if (pending.isEmpty()) {
+                return false;
+            }
+            logger.trace("Writing {} preferences", pending.size());
+            pending.forEach((key, value) -> {
+                if (value == REMOVED) {
+                    target.remove(key);
+                } else {
+                    target.put(key, value);
+                }
+            });
+            pending.clear();
+            return true;
+        }
+    }
+
+}
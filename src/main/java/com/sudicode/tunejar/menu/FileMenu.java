@@ -4,7 +4,6 @@ import com.sudicode.tunejar.config.Defaults;
 import com.sudicode.tunejar.player.PlayerController;
 import com.sudicode.tunejar.song.Playlist;
 import com.sudicode.tunejar.song.Song;
-import com.sudicode.tunejar.song.SongFactory;
 import javafx.application.Platform;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
@@ -63,7 +62,9 @@ public class FileMenu extends PlayerMenu {
             }
 
             Playlist p = new Playlist(pName);
-            p.save(controller.getPlayer().getOptions());
+            if (!controller.getPlaylistMenu().savePlaylist(p)) {
+                return null;
+            }
             controller.getPlaylistMenu().loadPlaylist(p);
             return p;
         }
@@ -87,16 +88,11 @@ public class FileMenu extends PlayerMenu {
 
     public void addDirectory() {
         controller.getPlayer().addDirectory();
-        controller.getPlaylistList().set(0, controller.getPlayer().getMasterPlaylist());
-        controller.refreshTables();
         controller.focus(controller.getPlaylistTable(), 0);
     }
 
     public void removeDirectory() {
-        if (controller.getPlayer().removeDirectory()) {
-            controller.getPlayer().refresh();
-            controller.getPlayer().stopSong();
-        }
+        controller.getPlayer().removeDirectory();
     }
 
     public void restart() {
@@ -134,7 +130,7 @@ public class FileMenu extends PlayerMenu {
         try (BufferedReader reader = new BufferedReader(new FileReader(m3uFile))) {
             for (String line = reader.readLine(); line != null; line = reader.readLine()) {
                 try {
-                    songs.add(SongFactory.create(new File(line)));
+                    songs.add(controller.getPlayer().getSongRegistry().get(new File(line)));
                 } catch (IllegalArgumentException e) {
                     logger.error("Could not add file: " + line, e);
                 }
@@ -159,7 +155,8 @@ public class FileMenu extends PlayerMenu {
         pl.addAll(songs);
         try {
             controller.getPlaylistMenu().loadPlaylist(pl);
-            pl.save(controller.getPlayer().getOptions());
+            controller.refreshFilter();
+            controller.getPlaylistMenu().savePlaylist(pl);
         } finally {
             controller.refreshTables();
         }
@@ -32,7 +32,7 @@ public class PlaybackMenu extends PlayerMenu {
     /** Plays or resumes the selected song. */
     public void play() {
         int index = controller.getSongTable().getFocusModel().getFocusedIndex();
-        if (controller.getSongList().isEmpty() || index < 0 || index >= controller.getSongList().size()) {
+        if (index < 0 || index >= controller.getFilteredSongList().size()) {
             controller.getStatus().setText("No song selected.");
             return;
         }
@@ -53,7 +53,7 @@ public class PlaybackMenu extends PlayerMenu {
         try {
             // Have the playlist point to the appropriate song, then play it
             controller.getSongTable().getSelectionModel().clearAndSelect(row);
-            controller.getPlayer().playSong(controller.getSongList().get(row));
+            controller.getPlayer().playSong(controller.getFilteredSongList().get(row));
             controller.getPlayer().setEndOfSongAction(controller::playNext);
 
             // Update the status bar accordingly
@@ -118,7 +118,7 @@ public class PlaybackMenu extends PlayerMenu {
         }
 
         // If the playlist is empty, return.
-        if (controller.getSongList().isEmpty()) {
+        if (controller.getFilteredSongList().isEmpty()) {
             controller.getStatus().setText("The playlist is empty.");
             return;
         }
@@ -133,11 +133,12 @@ public class PlaybackMenu extends PlayerMenu {
             }
             row = shuffledRowList.get(shuffledRowIter);
         } else {
-            row = controller.getSongList().indexOf(controller.getPlayer().getNowPlaying());
+            row = controller.getFilteredSongList().indexOf(controller.getPlayer().getNowPlaying());
             row = (row <= 0) ? 0 : row - 1;
         }
         play(row);
         controller.getSongTable().getSelectionModel().select(row);
+        preloadNext();
     }
 
     /** Plays the next song. */
@@ -149,7 +150,7 @@ public class PlaybackMenu extends PlayerMenu {
         }
 
         // If the playlist is empty, return.
-        if (controller.getSongList().isEmpty()) {
+        if (controller.getFilteredSongList().isEmpty()) {
             controller.getStatus().setText("The playlist is empty.");
             return;
         }
@@ -165,11 +166,43 @@ public class PlaybackMenu extends PlayerMenu {
             // Play the next song in the shuffled list.
             row = shuffledRowList.get(shuffledRowIter);
         } else {
-            row = controller.getSongList().indexOf(controller.getPlayer().getNowPlaying());
-            row = (row + 1 >= controller.getSongList().size()) ? 0 : row + 1;
+            row = controller.getFilteredSongList().indexOf(controller.getPlayer().getNowPlaying());
+            row = (row + 1 >= controller.getFilteredSongList().size()) ? 0 : row + 1;
         }
         play(row);
         controller.getSongTable().getSelectionModel().select(row);
+        preloadNext();
+    }
+
+    /**
+     * Preloads the song which {@link #playNext()} would play, so that the
+     * next song starts without a gap when this one ends.
+     */
+    public void preloadNext() {
+        int row = peekNextRow();
+        boolean valid = row >= 0 && row < controller.getFilteredSongList().size();
+        controller.getPlayer().preload(valid ? controller.getFilteredSongList().get(row) : null);
+    }
+
+    /**
+     * Finds the row which {@link #playNext()} would play, without moving
+     * there.
+     *
+     * @return The row, or -1 if no song is playing, or if the shuffled row
+     * list is about to be re-shuffled
+     */
+    private int peekNextRow() {
+        if (controller.getPlayer().getNowPlaying() == null || controller.getFilteredSongList().isEmpty()) {
+            return -1;
+        }
+        if (isShuffleEnabled()) {
+            if (shuffledRowList == null || shuffledRowIter + 1 >= shuffledRowList.size()) {
+                return -1;
+            }
+            return shuffledRowList.get(shuffledRowIter + 1);
+        }
+        int row = controller.getFilteredSongList().indexOf(controller.getPlayer().getNowPlaying());
+        return (row + 1 >= controller.getFilteredSongList().size()) ? 0 : row + 1;
     }
 
     public void initSpeedMenu() {
@@ -194,12 +227,12 @@ public class PlaybackMenu extends PlayerMenu {
         if (isShuffleEnabled()) {
             logger.debug("Shuffle: ON");
             List<Integer> list = new ArrayList<>();
-            for (int i = 0; i < controller.getSongList().size(); i++) {
+            for (int i = 0; i < controller.getFilteredSongList().size(); i++) {
                 list.add(i);
             }
             Collections.shuffle(list);
             if (controller.getPlayer().getNowPlaying() != null) {
-                list.add(0, controller.getSongList().indexOf(controller.getPlayer().getNowPlaying()));
+                list.add(0, controller.getFilteredSongList().indexOf(controller.getPlayer().getNowPlaying()));
             }
             logger.debug("Built shuffled row list");
             shuffledRowList = list;
@@ -208,6 +241,7 @@ public class PlaybackMenu extends PlayerMenu {
             logger.debug("Shuffle: OFF");
             shuffledRowList = null;
         }
+        preloadNext();
     }
 
     private boolean isShuffleEnabled() {
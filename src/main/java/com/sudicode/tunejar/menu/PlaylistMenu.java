@@ -18,8 +18,8 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Optional;
 
@@ -48,7 +48,7 @@ public class PlaylistMenu extends PlayerMenu {
         controller.focus(controller.getPlaylistTable(), controller.getPlaylistList().size() - 1);
 
         controller.setSongList(FXCollections.observableArrayList(p));
-        controller.getSongTable().setItems(controller.getSongList());
+        controller.getSongTable().setItems(controller.getFilteredSongList());
         logger.info("Loaded playlist: " + p.getName());
 
         // Restore sort order
@@ -68,9 +68,9 @@ public class PlaylistMenu extends PlayerMenu {
                 controller.getStatus().setText("No song was selected.");
                 return;
             }
-            p.addAll(songsToAdd);
+            controller.addSongs(p, songsToAdd);
             try {
-                p.save(controller.getPlayer().getOptions());
+                savePlaylist(p);
             } finally {
                 controller.refreshTables();
                 event.consume();
@@ -78,6 +78,23 @@ public class PlaylistMenu extends PlayerMenu {
         });
     }
 
+    /**
+     * Saves a playlist, telling the user if it could not be written.
+     *
+     * @param p A playlist
+     * @return <code>true</code> if the playlist was saved
+     */
+    public boolean savePlaylist(Playlist p) {
+        try {
+            p.save(controller.getPlayer().getOptions());
+            return true;
+        } catch (UncheckedIOException e) {
+            logger.error("Failed to save playlist: " + p.getName(), e);
+            controller.getStatus().setText("Failed to save playlist: " + p.getName());
+            return false;
+        }
+    }
+
     /**
      * Renames the current playlist.
      */
@@ -110,11 +127,8 @@ public class PlaylistMenu extends PlayerMenu {
         try {
             // Rename the playlist and save changes.
             Options options = controller.getPlayer().getOptions();
+            options.renamePlaylist(oldName, playlistName.get());
             pl.setName(playlistName.get());
-            pl.save(options);
-            LinkedHashMap<String, String> playlists = options.getPlaylists();
-            playlists.remove(oldName);
-            options.setPlaylists(playlists);
             controller.refreshTables();
 
             // Also, rename the playlist in the "Song -> Add to...<PLAYLIST>"
@@ -153,9 +167,7 @@ public class PlaylistMenu extends PlayerMenu {
         }
         try {
             Options options = controller.getPlayer().getOptions();
-            LinkedHashMap<String, String> playlists = options.getPlaylists();
-            playlists.remove(pl.getName());
-            options.setPlaylists(playlists);
+            options.deletePlaylist(pl.getName());
             controller.getPlaylistList().remove(pl);
 
             // Remove the playlist from the "Song -> Add To..." menu.
@@ -1,8 +1,11 @@
 package com.sudicode.tunejar.menu;
 
+import com.sudicode.tunejar.config.Defaults;
 import com.sudicode.tunejar.player.PlayerController;
 import com.sudicode.tunejar.song.Playlist;
+import com.sudicode.tunejar.song.SearchIndex;
 import com.sudicode.tunejar.song.Song;
+import com.sudicode.tunejar.song.SongQuery;
 import com.sudicode.tunejar.song.WavSong;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
@@ -17,8 +20,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -114,6 +117,11 @@ public class SongMenu extends PlayerMenu {
                 songToEdit.setTitle(list.get(0));
                 songToEdit.setArtist(list.get(1));
                 songToEdit.setAlbum(list.get(2));
+                controller.getPlayer().getSongRegistry().reindex(songToEdit);
+
+                // The cells repaint themselves, but the song may have moved, or no longer pass the filter.
+                controller.getSongTable().sort();
+                controller.refreshFilter();
                 controller.refreshTables();
                 controller.getStatus().setText("Edit successful.");
             } catch (Exception e) {
@@ -137,9 +145,9 @@ public class SongMenu extends PlayerMenu {
 
         Playlist pl;
         if ((pl = controller.getFileMenu().createPlaylist()) != null) {
-            pl.addAll(songs);
+            controller.addSongs(pl, songs);
             try {
-                pl.save(controller.getPlayer().getOptions());
+                controller.getPlaylistMenu().savePlaylist(pl);
             } finally {
                 controller.refreshTables();
             }
@@ -150,19 +158,17 @@ public class SongMenu extends PlayerMenu {
      * Removes the selected songs from the current playlist.
      */
     public void removeSong() {
-        // Find the songs to remove.
-        List<Song> songs = new ArrayList<>(controller.getSongTable().getSelectionModel().getSelectedItems());
-
-        if (songs.isEmpty()) {
+        if (controller.getSongTable().getSelectionModel().isEmpty()) {
             controller.getStatus().setText("No song selected.");
             return;
         }
 
-        // Remove them, then save changes to the playlist.
+        // Remove them, then save changes to the playlist. Songs are shared, so remove one occurrence per selected row
+        // rather than every occurrence.
         Playlist pl = controller.getPlaylistTable().getSelectionModel().getSelectedItem();
-        pl.removeAll(songs);
+        controller.removeSelectedSongs();
         controller.refreshTables();
-        pl.save(controller.getPlayer().getOptions());
+        controller.getPlaylistMenu().savePlaylist(pl);
     }
 
     public void search() {
@@ -170,12 +176,12 @@ public class SongMenu extends PlayerMenu {
         TextInputDialog dialog = new TextInputDialog();
         dialog.setTitle("Search");
         dialog.setHeaderText("What are you looking for?");
-        dialog.setContentText("Enter search term:");
+        dialog.setContentText("Enter search term (e.g. artist:\"daft punk\" -live):");
         Optional<String> keyword = dialog.showAndWait();
 
         // Perform the search.
         if (keyword.isPresent() && keyword.get().trim().length() > 0) {
-            int count = search(keyword.get().trim().toLowerCase());
+            int count = search(keyword.get().trim());
             if (count == 0) {
                 controller.getStatus().setText("No matches found.");
             } else {
@@ -185,52 +191,54 @@ public class SongMenu extends PlayerMenu {
     }
 
     /**
-     * Arranges the playlist such that songs matching the keyword have priority.
+     * Arranges the playlist such that songs matching the query have priority.
+     * The query is compiled by {@link SongQuery}: plain keywords are ranked by
+     * the {@link SearchIndex}, which tolerates typos, and other queries are
+     * matched exactly. Matches come first, best first. The rest keep the song
+     * table's sort order.
      *
-     * @param keyword The keyword
+     * @param keyword The query
      * @return The amount of songs that match
      */
     public int search(String keyword) {
-        // Assign priorities to the songs, depending on relevance.
-        int count = 0;
-        Map<Song, Integer> priorityMap = new HashMap<>();
-        for (Song s : controller.getSongList()) {
-            if (s.getTitle().toLowerCase().contains(keyword)) {
-                priorityMap.put(s, 1);
-                count++;
-            } else if (s.getArtist().toLowerCase().contains(keyword)) {
-                priorityMap.put(s, 2);
-                count++;
-            } else if (s.getAlbum().toLowerCase().contains(keyword)) {
-                priorityMap.put(s, 3);
-                count++;
-            } else {
-                priorityMap.put(s, 4);
-            }
+        // Rank the songs in the playlist which match.
+        List<Song> ranked = SongQuery.parse(keyword).rank(controller.getSongList(),
+                controller.getPlayer().getSongRegistry().getSearchIndex(), Defaults.SEARCH_RESULTS);
+        Map<Song, Integer> ranks = new IdentityHashMap<>();
+        for (int i = 0; i < ranked.size(); i++) {
+            ranks.put(ranked.get(i), i);
         }
 
-        // Sort the song by relevance first, then by the song table's
-        // comparator.
-        Collections.sort(controller.getSongList(), (o1, o2) -> {
-            int result = priorityMap.get(o1) - priorityMap.get(o2);
-            if (result == 0) {
-                if (controller.getSongTable().getComparator() == null) {
-                    return 0;
-                } else {
-                    return controller.getSongTable().getComparator().compare(o1, o2);
-                }
-            } else {
-                return result;
+        // Put them first, best first, followed by the rest sorted by the song table's comparator. A playlist may
+        // list a song more than once, so every occurrence is kept.
+        List<Song> matches = new ArrayList<>();
+        List<Song> rest = new ArrayList<>(controller.getSongList().size());
+        for (Song s : controller.getSongList()) {
+            (ranks.containsKey(s) ? matches : rest).add(s);
+        }
+        matches.sort(Comparator.comparing(ranks::get));
+        Comparator<Song> comparator = controller.getSongComparator();
+        if (comparator != null) {
+            rest.sort(comparator);
+        }
+        List<Song> arranged = new ArrayList<>(matches);
+        arranged.addAll(rest);
+        controller.getSongList().setAll(arranged);
+
+        // Select all relevant songs which pass the filter. They lead the filtered list, just as in the song list.
+        int visible = 0;
+        for (Song s : controller.getFilteredSongList()) {
+            if (!ranks.containsKey(s)) {
+                break;
             }
-        });
-
-        // Select all relevant songs.
+            visible++;
+        }
         controller.getSongTable().scrollTo(0);
         controller.getSongTable().getSelectionModel().clearSelection();
-        for (int i = 0; i < count; i++) {
-            controller.getSongTable().getSelectionModel().select(i);
+        if (visible > 0) {
+            controller.getSongTable().getSelectionModel().selectRange(0, visible);
         }
-        return count;
+        return matches.size();
     }
 
 }
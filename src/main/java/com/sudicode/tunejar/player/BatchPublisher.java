@@ -0,0 +1,87 @@
+package com.sudicode.tunejar.player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Hands items produced by a background thread over to the JavaFX application thread in batches. A batch is published
+ * once it reaches a maximum size or once a time interval has elapsed, whichever comes first. Batches go through a
+ * {@link UiDispatcher}, and at most one of them is pending at a time, so a fast producer cannot flood the JavaFX
+ * application thread. Items are handed over in the order in which they were added, and none are dropped.
+ *
+ * @param <T> The type of item
+ */
+public final class BatchPublisher<T> {
+
+    private final UiDispatcher dispatcher;
+    private final int maxSize;
+    private final long intervalNanos;
+    private final Consumer<List<T>> sink;
+
+    // Guarded by this
+    private List<T> pending = new ArrayList<>();
+    private List<T> inFlight;
+    private long lastPublished = System.nanoTime();
+
+    /**
+     * Constructor.
+     *
+     * @param dispatcher Hands each batch over to the JavaFX application thread
+     * @param maxSize    Maximum number of items per batch
+     * @param interval   Maximum time (in milliseconds) that an item may wait before being published
+     * @param sink       Receives each batch on the JavaFX application thread
+     */
+    public BatchPublisher(UiDispatcher dispatcher, int maxSize, long interval, Consumer<List<T>> sink) {
+        this.dispatcher = dispatcher;
+        this.maxSize = maxSize;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(interval);
+        this.sink = sink;
+    }
+
+    /**
+     * Adds an item, publishing the current batch if it is full or overdue.
+     *
+     * @param item The item
+     */
+    public synchronized void add(T item) {
+        pending.add(item);
+        if (inFlight == null && (pending.size() >= maxSize || System.nanoTime() - lastPublished >= intervalNanos)) {
+            publish();
+        }
+    }
+
+    /**
+     * Publishes whatever is left. If a batch is still waiting for the JavaFX application thread, the rest is added to
+     * it. Call this once the producer is done.
+     */
+    public synchronized void finish() {
+        if (!pending.isEmpty()) {
+            publish();
+        }
+    }
+
+    private void publish() {
+        if (inFlight != null) {
+            // Posting again would replace the pending batch, so join it instead.
+            inFlight.addAll(pending);
+            pending = new ArrayList<>();
+            return;
+        }
+        inFlight = pending;
+        pending = new ArrayList<>();
+        dispatcher.post(this, this::deliver);
+    }
+
+    private void deliver() {
+        List<T> batch;
+        synchronized (this) {
+            batch = inFlight;
+            inFlight = null;
+            lastPublished = System.nanoTime();
+        }
+        sink.accept(batch);
+    }
+
+}
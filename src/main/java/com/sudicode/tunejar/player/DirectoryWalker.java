@@ -0,0 +1,265 @@
+package com.sudicode.tunejar.player;
+
+import com.sudicode.tunejar.config.Defaults;
+import com.sudicode.tunejar.song.SongFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finds supported audio files using a fork/join traversal. Each subdirectory is listed by its own task, so subtrees are
+ * listed in parallel, which matters on network shares where each directory listing is a round trip. The tasks of
+ * every music directory share one {@link ForkJoinPool}, but each music directory is limited to a configurable number
+ * of concurrent listings so that one huge tree cannot starve the others. Files are still visited in the same depth
+ * first, lexicographic order as a sequential walk, as soon as every directory before them has been listed.
+ * <p>
+ * Listing may only run a bounded number of entries ahead of the visitor, and entries are dropped as soon as they are
+ * visited, so the memory used by a walk does not grow with the size of the tree. Should the visitor need a directory
+ * which is still waiting to be listed, it lists that directory itself.
+ */
+public final class DirectoryWalker {
+
+    private static final Logger logger = LoggerFactory.getLogger(DirectoryWalker.class);
+
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private final int bufferSize;
+
+    /**
+     * Constructor.
+     *
+     * @param pool        The pool which lists directories
+     * @param parallelism Maximum number of directories listed at once within each music directory
+     */
+    public DirectoryWalker(ForkJoinPool pool, int parallelism) {
+        this(pool, parallelism, Defaults.WALK_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param pool        The pool which lists directories
+     * @param parallelism Maximum number of directories listed at once within each music directory
+     * @param bufferSize  Maximum number of entries listed ahead of the visitor within each music directory
+     */
+    DirectoryWalker(ForkJoinPool pool, int parallelism, int bufferSize) {
+        this.pool = pool;
+        this.parallelism = Math.max(1, parallelism);
+        this.bufferSize = Math.max(1, bufferSize);
+    }
+
+    /**
+     * Walks the directories, visiting every supported file on the calling thread.
+     *
+     * @param directories The directories to walk
+     * @param visitor     Receives each supported file
+     * @throws InterruptedException if the calling thread was interrupted while waiting
+     */
+    public void walk(Collection<File> directories, Visitor visitor) throws InterruptedException {
+        List<Listing> listings = new ArrayList<>();
+        try {
+            for (File directory : directories) {
+                if (directory == null || !directory.isDirectory()) {
+                    logger.error("Failed to access directory: " + directory + ", skipping...");
+                    continue;
+                }
+                Root root = new Root(pool, parallelism, bufferSize);
+                Listing listing = new Listing(root, directory.toPath());
+                root.running.incrementAndGet();
+                pool.execute(listing);
+                listings.add(listing);
+            }
+            for (Listing listing : listings) {
+                visit(listing, visitor);
+            }
+        } finally {
+            // Stop listing whatever has not been listed yet, in case the walk was cut short.
+            listings.forEach(listing -> listing.root.cancel());
+        }
+    }
+
+    /**
+     * Visits the entries of a directory in order, waiting for each subdirectory to be listed before descending. Each
+     * entry is dropped once it has been visited.
+     */
+    private void visit(Listing listing, Visitor visitor) throws InterruptedException {
+        Root root = listing.root;
+        if (!listing.isDone() && root.pending.remove(listing)) {
+            // Not started yet, most likely held back by the buffer limit.
+            root.running.incrementAndGet();
+            listing.quietlyInvoke();
+        }
+        try {
+            listing.get();
+        } catch (ExecutionException e) {
+            logger.error("Failed to access directory: " + listing.directory, e.getCause());
+            return;
+        }
+        List<Object> entries = listing.entries;
+        listing.entries = Collections.emptyList();
+        for (int i = 0; i < entries.size(); i++) {
+            Object entry = entries.set(i, null);
+            if (entry instanceof Listing) {
+                visit((Listing) entry, visitor);
+            } else {
+                visitor.visit(((Path) entry).toFile());
+            }
+            root.buffered.decrementAndGet();
+            root.drain();
+        }
+    }
+
+    /**
+     * Receives the files found by a {@link DirectoryWalker}.
+     */
+    @FunctionalInterface
+    public interface Visitor {
+
+        /**
+         * @param file A supported audio file
+         * @throws InterruptedException if the visitor was interrupted while waiting
+         */
+        void visit(File file) throws InterruptedException;
+
+    }
+
+    /**
+     * Limits the number of concurrent listings within one music directory, and the number of entries which have been
+     * listed but not visited yet. Subdirectories which cannot be listed yet wait in a deque, earliest (in visiting
+     * order) first.
+     */
+    private static final class Root {
+
+        private final ForkJoinPool pool;
+        private final int limit;
+        private final int bufferSize;
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger buffered = new AtomicInteger();
+        private final Deque<Listing> pending = new ConcurrentLinkedDeque<>();
+        private volatile boolean cancelled;
+
+        private Root(ForkJoinPool pool, int limit, int bufferSize) {
+            this.pool = pool;
+            this.limit = limit;
+            this.bufferSize = bufferSize;
+        }
+
+        /**
+         * Starts pending listings until either limit is reached. May be called from any thread.
+         */
+        private void drain() {
+            while (!cancelled && !pending.isEmpty() && buffered.get() < bufferSize) {
+                int r = running.get();
+                if (r >= limit) {
+                    return;
+                }
+                if (!running.compareAndSet(r, r + 1)) {
+                    continue;
+                }
+                Listing next = pending.pollFirst();
+                if (next != null) {
+                    if (ForkJoinTask.getPool() == pool) {
+                        next.fork();
+                    } else {
+                        pool.execute(next);
+                    }
+                    continue;
+                }
+                running.decrementAndGet();
+                if (pending.isEmpty()) {
+                    return;
+                }
+            }
+        }
+
+        private void cancel() {
+            cancelled = true;
+            for (Listing listing; (listing = pending.pollFirst()) != null; ) {
+                listing.cancel(false);
+            }
+        }
+
+    }
+
+    /**
+     * Lists a directory, then queues a new listing for each of its subdirectories.
+     */
+    private static final class Listing extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Root root;
+        private final Path directory;
+
+        /**
+         * Supported files ({@link Path Paths}) and subdirectories ({@link Listing Listings}), in lexicographic order.
+         */
+        private List<Object> entries = Collections.emptyList();
+
+        private Listing(Root root, Path directory) {
+            this.root = root;
+            this.directory = directory;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                if (!root.cancelled) {
+                    list();
+                }
+            } finally {
+                root.running.decrementAndGet();
+                root.drain();
+            }
+        }
+
+        private void list() {
+            List<Path> paths = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                stream.forEach(paths::add);
+            } catch (IOException e) {
+                logger.error("Failed to access directory: " + directory, e);
+                return;
+            }
+            Collections.sort(paths);
+
+            List<Object> list = new ArrayList<>(paths.size());
+            List<Listing> subdirectories = new ArrayList<>();
+            for (Path path : paths) {
+                if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                    Listing subdirectory = new Listing(root, path);
+                    subdirectories.add(subdirectory);
+                    list.add(subdirectory);
+                } else if (SongFactory.isSupported(path.getFileName().toString())) {
+                    list.add(path);
+                }
+            }
+            root.buffered.addAndGet(list.size());
+            entries = list;
+
+            // Push in reverse, so that the first subdirectory ends up at the front of the deque.
+            for (int i = subdirectories.size() - 1; i >= 0; i--) {
+                root.pending.addFirst(subdirectories.get(i));
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,395 @@
+package com.sudicode.tunejar.player;
+
+import com.sudicode.tunejar.config.Defaults;
+import com.sudicode.tunejar.song.FilePaths;
+import com.sudicode.tunejar.song.Song;
+import com.sudicode.tunejar.song.SongFactory;
+import com.sudicode.tunejar.song.TagCache;
+import javafx.application.Platform;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the master playlist in sync with the music directories. File system events reported by a {@link WatchService}
+ * are collected until the directories have been quiet for {@link Defaults#WATCHER_QUIET_PERIOD} milliseconds, then
+ * applied to the library as a single delta. Because watch services can miss events (for example, on network shares),
+ * the directories are also reconciled against the library every {@link Defaults#RECONCILE_INTERVAL} seconds.
+ */
+public final class LibraryWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(LibraryWatcher.class);
+
+    private final TagCache tagCache;
+    private final Supplier<DirectoryWalker> walkers;
+    private final Executor fxThread;
+    private final BiConsumer<List<Song>, Set<String>> sink;
+    private final long quietPeriod;
+    private final long reconcileInterval;
+    private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+
+    // Only accessed by the watcher thread.
+    private final Set<File> roots = new LinkedHashSet<>();
+    private final Map<WatchKey, Path> keys = new HashMap<>();
+    private final Set<String> known = new HashSet<>();
+    private final Set<File> pendingChanges = new LinkedHashSet<>();
+    private final Set<File> pendingRemovals = new LinkedHashSet<>();
+    private long firstPending;
+    private long lastReconcile;
+
+    private WatchService watchService;
+    private Thread thread;
+
+    /**
+     * Constructor.
+     *
+     * @param player   The {@link Player} whose library should be kept in sync
+     * @param tagCache The {@link TagCache} used to parse changed files
+     */
+    public LibraryWatcher(Player player, TagCache tagCache) {
+        this(tagCache, () -> new DirectoryWalker(player.getScheduler().walk(), player.getOptions().getWalkThreads()),
+                Platform::runLater, player::updateLibrary, Defaults.WATCHER_QUIET_PERIOD,
+                TimeUnit.SECONDS.toMillis(Defaults.RECONCILE_INTERVAL));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param tagCache          The {@link TagCache} used to parse changed files
+     * @param walkers           Creates a {@link DirectoryWalker} for each scan of the directories
+     * @param fxThread          Runs the sink, normally {@link Platform#runLater(Runnable)}
+     * @param sink              Receives the songs which were added or modified, and the absolute paths of the files
+     *                          or directories which were removed
+     * @param quietPeriod       Time (in milliseconds) that the directories must be quiet before changes are applied
+     * @param reconcileInterval Time (in milliseconds) between two reconciliations
+     */
+    LibraryWatcher(TagCache tagCache, Supplier<DirectoryWalker> walkers, Executor fxThread,
+                   BiConsumer<List<Song>, Set<String>> sink, long quietPeriod, long reconcileInterval) {
+        this.tagCache = tagCache;
+        this.walkers = walkers;
+        this.fxThread = fxThread;
+        this.sink = sink;
+        this.quietPeriod = quietPeriod;
+        this.reconcileInterval = reconcileInterval;
+    }
+
+    /**
+     * Starts watching in a background thread.
+     *
+     * @throws IOException if the watch service could not be created
+     */
+    public synchronized void start() throws IOException {
+        if (thread != null) {
+            return;
+        }
+        open();
+        thread = new Thread(this::run, "library-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Creates the watch service, without starting the background thread.
+     *
+     * @throws IOException if the watch service could not be created
+     */
+    synchronized void open() throws IOException {
+        if (watchService == null) {
+            watchService = FileSystems.getDefault().newWatchService();
+            lastReconcile = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Stops watching. Pending changes are discarded.
+     */
+    public synchronized void stop() {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.error("Failed to close the watch service.", e);
+            }
+            watchService = null;
+        }
+    }
+
+    /**
+     * Replaces the watched directories and the set of known songs. Called after a full refresh, so that only
+     * subsequent changes are reported.
+     *
+     * @param directories The music directories
+     * @param library     Every song that is currently in the library
+     */
+    public void reset(Collection<File> directories, Collection<Song> library) {
+        List<File> dirs = new ArrayList<>(directories);
+        List<String> paths = new ArrayList<>();
+        library.forEach(s -> paths.add(s.getAbsoluteFilename()));
+        commands.add(() -> {
+            keys.keySet().forEach(WatchKey::cancel);
+            keys.clear();
+            roots.clear();
+            known.clear();
+            pendingChanges.clear();
+            pendingRemovals.clear();
+            known.addAll(paths);
+            roots.addAll(dirs);
+            dirs.forEach(this::register);
+        });
+    }
+
+    /**
+     * Starts watching a directory. Supported files inside of it are added to the library.
+     *
+     * @param directory The directory
+     */
+    public void watch(File directory) {
+        commands.add(() -> {
+            roots.add(directory);
+            register(directory);
+            try {
+                scan(directory.toPath());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    /**
+     * Stops watching a directory. Songs inside of it are removed from the library, unless they are also inside of
+     * another watched directory.
+     *
+     * @param directory The directory
+     */
+    public void unwatch(File directory) {
+        commands.add(() -> {
+            roots.remove(directory);
+            Path dir = directory.toPath();
+            for (Iterator<Map.Entry<WatchKey, Path>> it = keys.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<WatchKey, Path> entry = it.next();
+                if (entry.getValue().startsWith(dir) && !isWithinRoot(entry.getValue())) {
+                    entry.getKey().cancel();
+                    it.remove();
+                }
+            }
+            for (String path : known) {
+                Path p = new File(path).toPath();
+                if (p.startsWith(dir) && !isWithinRoot(p)) {
+                    pendingRemovals.add(p.toFile());
+                }
+            }
+        });
+    }
+
+    /**
+     * Main loop of the watcher thread.
+     */
+    private void run() {
+        logger.info("Library watcher started.");
+        WatchService service;
+        synchronized (this) {
+            service = watchService;
+        }
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                runCommands();
+                WatchKey key = service.poll(quietPeriod, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    handle(keys.get(key), key.pollEvents());
+                    if (!key.reset()) {
+                        keys.remove(key);
+                    }
+                }
+                update(key == null, System.currentTimeMillis());
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                break;
+            } catch (Exception e) {
+                logger.error("Library watcher failed to process changes.", e);
+            }
+        }
+        logger.info("Library watcher stopped.");
+    }
+
+    /**
+     * Runs the commands which were queued by {@link #reset(Collection, Collection)}, {@link #watch(File)} and
+     * {@link #unwatch(File)}. Called by the watcher thread.
+     */
+    void runCommands() {
+        for (Runnable command; (command = commands.poll()) != null; ) {
+            command.run();
+        }
+    }
+
+    /**
+     * Applies the pending changes once things quiet down, or if they have been pending for too long, and reconciles
+     * the directories when it is due. Called by the watcher thread after each poll of the watch service.
+     *
+     * @param quiet <code>true</code> if no events arrived during the last quiet period
+     * @param now   The current time, in milliseconds
+     * @throws InterruptedException if the watcher was interrupted while reconciling
+     */
+    void update(boolean quiet, long now) throws InterruptedException {
+        boolean pending = !pendingChanges.isEmpty() || !pendingRemovals.isEmpty();
+        if (pending && firstPending == 0) {
+            firstPending = now;
+        }
+        if (pending && (quiet || now - firstPending > 10 * quietPeriod)) {
+            flush();
+            firstPending = 0;
+        }
+        if (now - lastReconcile > reconcileInterval) {
+            reconcile(now);
+        }
+    }
+
+    /**
+     * Collects the events of a signalled key into the pending changes. Called by the watcher thread.
+     *
+     * @param dir    The directory which the key watches, or <code>null</code> if it is no longer watched
+     * @param events The events
+     * @throws InterruptedException if the watcher was interrupted while scanning a new directory
+     */
+    void handle(Path dir, List<WatchEvent<?>> events) throws InterruptedException {
+        for (WatchEvent<?> event : events) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                logger.info("Watch service overflowed, reconciling...");
+                lastReconcile = 0;
+                continue;
+            }
+            if (dir == null) {
+                continue;
+            }
+            Path path = dir.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                pendingChanges.remove(path.toFile());
+                pendingRemovals.add(path.toFile());
+            } else if (Files.isDirectory(path)) {
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                    register(path.toFile());
+                    scan(path);
+                }
+            } else if (isSupported(path)) {
+                pendingRemovals.remove(path.toFile());
+                pendingChanges.add(path.toFile());
+            }
+        }
+    }
+
+    /**
+     * Parses the pending changes, then hands them over to the {@link Player}.
+     */
+    private void flush() {
+        List<Song> changed = new ArrayList<>();
+        for (File file : pendingChanges) {
+            if (file.isFile()) {
+                changed.add(tagCache.get(file));
+                known.add(file.getAbsolutePath());
+            }
+        }
+        Set<String> removed = new HashSet<>();
+        pendingRemovals.forEach(file -> removed.add(file.getAbsolutePath()));
+        known.removeIf(path -> FilePaths.isWithin(path, removed));
+        pendingChanges.clear();
+        pendingRemovals.clear();
+
+        logger.info("Library changed: {} added or modified, {} removed", changed.size(), removed.size());
+        tagCache.save();
+        fxThread.execute(() -> sink.accept(changed, removed));
+    }
+
+    /**
+     * Walks every watched directory and compares it against the known songs, in case the watch service missed any
+     * events.
+     */
+    private void reconcile(long now) throws InterruptedException {
+        lastReconcile = now;
+        Set<String> found = new HashSet<>();
+        walkers.get().walk(roots, file -> {
+            found.add(file.getAbsolutePath());
+            if (!known.contains(file.getAbsolutePath()) || !tagCache.isCached(file)) {
+                pendingChanges.add(file);
+            }
+        });
+        known.stream().filter(path -> !found.contains(path)).forEach(path -> pendingRemovals.add(new File(path)));
+    }
+
+    /**
+     * Registers a directory and all of its subdirectories with the watch service.
+     *
+     * @param directory The directory
+     */
+    private void register(File directory) {
+        if (!directory.isDirectory()) {
+            logger.error("Failed to access directory: " + directory + ", skipping...");
+            return;
+        }
+        try {
+            Files.walkFileTree(directory.toPath(), new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    keys.put(dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY), dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            logger.error("Failed to watch directory: " + directory, e);
+        }
+    }
+
+    /**
+     * Marks every supported file inside of a directory as changed, unless it is already known and unmodified.
+     *
+     * @param directory The directory
+     */
+    private void scan(Path directory) throws InterruptedException {
+        walkers.get().walk(Collections.singleton(directory.toFile()), file -> {
+            if (!known.contains(file.getAbsolutePath()) || !tagCache.isCached(file)) {
+                pendingChanges.add(file);
+            }
+        });
+    }
+
+    private boolean isWithinRoot(Path path) {
+        return roots.stream().anyMatch(r -> path.startsWith(r.toPath()));
+    }
+
+    private boolean isSupported(Path path) {
+        Path name = path.getFileName();
+        return name != null && SongFactory.isSupported(name.toString()) && !Files.isDirectory(path);
+    }
+
+}
@@ -0,0 +1,128 @@
+package com.sudicode.tunejar.player;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Turns a query which is being typed into a filter predicate, without blocking the JavaFX application thread. Each
+ * keystroke restarts a short delay, so only a query which the user has paused on gets matched. The delay is timed on
+ * one executor and the matching runs on another, so that a slow match cannot hold up other timers. The result of a
+ * match is dropped if the query has changed in the meantime, so only the predicate for the latest query is ever
+ * published. {@link #update(String)} must be called on the JavaFX application thread.
+ *
+ * @param <T> Type of the filtered items
+ */
+final class LiveFilter<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(LiveFilter.class);
+
+    private final ScheduledExecutorService timer;
+    private final Executor executor;
+    private final Executor fxThread;
+    private final long delay;
+    private final Function<String, Predicate<T>> matcher;
+    private final Consumer<Predicate<T>> publisher;
+
+    private final AtomicLong generation = new AtomicLong();
+    private ScheduledFuture<?> pending;
+    private String query = "";
+    private Predicate<T> predicate;
+
+    /**
+     * Constructor.
+     *
+     * @param timer     Times the delay
+     * @param executor  Runs the matcher
+     * @param fxThread  Runs the publisher, normally {@link javafx.application.Platform#runLater(Runnable)}
+     * @param delay     Time (in milliseconds) that the query must stay unchanged before it is matched
+     * @param matcher   Builds the predicate for a non-empty query
+     * @param publisher Applies a predicate, or <code>null</code> to show every item
+     */
+    LiveFilter(ScheduledExecutorService timer, Executor executor, Executor fxThread, long delay,
+               Function<String, Predicate<T>> matcher, Consumer<Predicate<T>> publisher) {
+        this.timer = timer;
+        this.executor = executor;
+        this.fxThread = fxThread;
+        this.delay = delay;
+        this.matcher = matcher;
+        this.publisher = publisher;
+    }
+
+    /**
+     * Called whenever the query changes. An empty query clears the filter right away.
+     *
+     * @param query The new query
+     */
+    void update(String query) {
+        this.query = query;
+        long current = generation.incrementAndGet();
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+
+        String trimmed = query == null ? "" : query.trim();
+        if (trimmed.isEmpty()) {
+            publish(null);
+            return;
+        }
+        try {
+            pending = timer.schedule(() -> executor.execute(() -> match(trimmed, current)), delay,
+                    TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Filter dropped, the executor has shut down: " + trimmed);
+        }
+    }
+
+    /**
+     * Matches the current query again, for when the items which it matches may have changed. The predicate only
+     * knows the items which existed when it was built, so this must be called once items are added. Does nothing if
+     * every item is shown.
+     */
+    void refresh() {
+        if (query != null && !query.trim().isEmpty()) {
+            update(query);
+        }
+    }
+
+    /**
+     * @return The predicate which was published last, or <code>null</code> if every item is shown.
+     */
+    Predicate<T> getPredicate() {
+        return predicate;
+    }
+
+    private void match(String query, long current) {
+        if (generation.get() != current) {
+            return;
+        }
+        try {
+            long begin = System.nanoTime();
+            Predicate<T> result = matcher.apply(query);
+            logger.trace("Matched \"{}\" in {}us", query, (System.nanoTime() - begin) / 1000);
+            fxThread.execute(() -> {
+                if (generation.get() == current) {
+                    publish(result);
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.error("Failed to filter by: " + query, e);
+        }
+    }
+
+    private void publish(Predicate<T> result) {
+        predicate = result;
+        publisher.accept(result);
+    }
+
+}
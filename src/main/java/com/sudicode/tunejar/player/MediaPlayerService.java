@@ -0,0 +1,141 @@
+package com.sudicode.tunejar.player;
+
+import com.sudicode.tunejar.song.Song;
+import javafx.beans.value.ChangeListener;
+import javafx.scene.media.Media;
+import javafx.scene.media.MediaPlayer;
+import javafx.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates and disposes every {@link MediaPlayer} of the application. Each player holds native resources until it is
+ * disposed, which stopping it does not do, so a player must be handed back to {@link #dispose(MediaPlayer)} once it
+ * is done with, whether it finished, was stopped or was never played. Disposing a player also removes the listeners
+ * which were attached to it through {@link #attach(MediaPlayer, ChangeListener)}, so that they do not pile up. The
+ * number of live players is counted, for monitoring.
+ * <p>
+ * A player cannot be pointed at another song, so players themselves are not reused; their {@link Media} is. The Media
+ * of recently played and upcoming songs is kept in a small cache, so that playing one of them again does not have to
+ * locate and probe the file again. Players may be created on any thread.
+ */
+public final class MediaPlayerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaPlayerService.class);
+
+    private final Map<String, Media> mediaCache;
+    private final Map<MediaPlayer, ChangeListener<? super Duration>> timeListeners = new IdentityHashMap<>();
+    private final AtomicInteger livePlayers = new AtomicInteger();
+
+    /**
+     * Constructor.
+     *
+     * @param cacheSize Number of songs whose {@link Media} is kept
+     */
+    public MediaPlayerService(int cacheSize) {
+        mediaCache = new LinkedHashMap<String, Media>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Media> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Creates a player for a song. This may open the file, so it may block.
+     *
+     * @param song The song
+     * @return The player, which must be handed back to {@link #dispose(MediaPlayer)}
+     * @throws javafx.scene.media.MediaException if the file cannot be played.
+     */
+    public MediaPlayer create(Song song) {
+        MediaPlayer player = new MediaPlayer(getMedia(song));
+        logger.debug("Created media player for: {} (live players: {})", song, livePlayers.incrementAndGet());
+        return player;
+    }
+
+    /**
+     * Attaches a listener to the current time of a player. It is removed when the player is disposed, as is its end
+     * of media handler.
+     *
+     * @param player       The player
+     * @param timeListener Listens to the current time of the player
+     */
+    public void attach(MediaPlayer player, ChangeListener<? super Duration> timeListener) {
+        synchronized (timeListeners) {
+            ChangeListener<? super Duration> old = timeListeners.put(player, timeListener);
+            if (old != null) {
+                player.currentTimeProperty().removeListener(old);
+            }
+        }
+        player.currentTimeProperty().addListener(timeListener);
+    }
+
+    /**
+     * Stops a player, removes its listeners, and releases its native resources. Does nothing if the player is
+     * <code>null</code>.
+     *
+     * @param player The player
+     */
+    public void dispose(MediaPlayer player) {
+        if (player == null) {
+            return;
+        }
+        ChangeListener<? super Duration> timeListener;
+        synchronized (timeListeners) {
+            timeListener = timeListeners.remove(player);
+        }
+        if (timeListener != null) {
+            player.currentTimeProperty().removeListener(timeListener);
+        }
+        player.setOnEndOfMedia(null);
+        player.setOnReady(null);
+        player.setOnError(null);
+        player.stop();
+        player.dispose();
+        logger.debug("Disposed media player (live players: {})", livePlayers.decrementAndGet());
+    }
+
+    /**
+     * @return Number of players which were created and not yet disposed.
+     */
+    public int getLivePlayers() {
+        return livePlayers.get();
+    }
+
+    /**
+     * @return Number of songs whose {@link Media} is cached.
+     */
+    public int getCachedMedia() {
+        synchronized (mediaCache) {
+            return mediaCache.size();
+        }
+    }
+
+    private Media getMedia(Song song) {
+        String path = song.getAbsoluteFilename();
+        synchronized (mediaCache) {
+            Media media = mediaCache.get(path);
+            if (media != null) {
+                return media;
+            }
+        }
+        Media media = new Media(new File(path).toURI().toString());
+        synchronized (mediaCache) {
+            mediaCache.put(path, media);
+        }
+        return media;
+    }
+
+    @Override
+    public String toString() {
+        return getLivePlayers() + " live players, " + getCachedMedia() + " cached media";
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.sudicode.tunejar.player;
+
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Shows the position of the song which is playing: the elapsed and the total time (as <code>m:ss</code>), and the
+ * seek bar. The media player reports its position several times per second, but the times only change once per
+ * second and the seek bar once per pixel, so the controls are only touched then. Times are formatted into a reused
+ * buffer rather than by {@link String#format(String, Object...)}. Must be used on the JavaFX application thread.
+ */
+final class PlaybackClock {
+
+    /**
+     * Number of steps of the seek bar before it has a width, such as while it is hidden.
+     */
+    private static final int DEFAULT_STEPS = 1000;
+
+    private final Consumer<String> currentTime;
+    private final Consumer<String> totalDuration;
+    private final DoubleConsumer progress;
+    private final DoubleSupplier width;
+
+    private final char[] buffer = new char[24];
+    private long shownCurrent;
+    private long shownTotal;
+    private long shownPixel;
+
+    /**
+     * Constructor.
+     *
+     * @param currentTime   Shows the elapsed time
+     * @param totalDuration Shows the total time
+     * @param progress      Sets the progress of the seek bar
+     * @param width         Finds the width (in pixels) of the seek bar
+     */
+    PlaybackClock(Consumer<String> currentTime, Consumer<String> totalDuration, DoubleConsumer progress,
+                  DoubleSupplier width) {
+        this.currentTime = currentTime;
+        this.totalDuration = totalDuration;
+        this.progress = progress;
+        this.width = width;
+        reset();
+    }
+
+    /**
+     * Forgets what is shown, so that the next update shows everything. Call this when a new song starts.
+     */
+    void reset() {
+        shownCurrent = -1;
+        shownTotal = -1;
+        shownPixel = -1;
+    }
+
+    /**
+     * Shows a new position.
+     *
+     * @param current The elapsed time, in seconds
+     * @param total   The total time, in seconds, or {@link Double#NaN} if it is not known yet
+     */
+    void update(double current, double total) {
+        long currentSeconds = seconds(current);
+        long totalSeconds = seconds(total);
+        if (currentSeconds != shownCurrent) {
+            shownCurrent = currentSeconds;
+            currentTime.accept(format(currentSeconds));
+        }
+        if (totalSeconds != shownTotal) {
+            shownTotal = totalSeconds;
+            totalDuration.accept(format(totalSeconds));
+        }
+
+        double w = width.getAsDouble();
+        int steps = w >= 1 ? (int) w : DEFAULT_STEPS;
+        long pixel = total > 0 ? (long) (Math.min(current / total, 1) * steps) : 0;
+        if (pixel != shownPixel) {
+            shownPixel = pixel;
+            progress.accept((double) pixel / steps);
+        }
+    }
+
+    private static long seconds(double time) {
+        return time > 0 && time < Long.MAX_VALUE ? (long) time : 0;
+    }
+
+    private String format(long seconds) {
+        return new String(buffer, 0, format(seconds, buffer));
+    }
+
+    /**
+     * Formats a time as <code>m:ss</code>.
+     *
+     * @param seconds The time, in seconds
+     * @param buffer  Receives the formatted time, and must have room for at least 22 characters
+     * @return Length of the formatted time
+     */
+    static int format(long seconds, char[] buffer) {
+        long minutes = seconds / 60;
+        int secs = (int) (seconds % 60);
+        int digits = 1;
+        for (long m = minutes; m >= 10; m /= 10) {
+            digits++;
+        }
+        for (int i = digits - 1; i >= 0; i--) {
+            buffer[i] = (char) ('0' + minutes % 10);
+            minutes /= 10;
+        }
+        buffer[digits] = ':';
+        buffer[digits + 1] = (char) ('0' + secs / 10);
+        buffer[digits + 2] = (char) ('0' + secs % 10);
+        return digits + 3;
+    }
+
+}
@@ -1,13 +1,17 @@
 package com.sudicode.tunejar.player;
 
-import com.google.common.collect.HashMultiset;
 import com.sudicode.tunejar.config.Defaults;
 import com.sudicode.tunejar.config.Options;
+import com.sudicode.tunejar.song.FilePaths;
 import com.sudicode.tunejar.song.Playlist;
 import com.sudicode.tunejar.song.Song;
-import com.sudicode.tunejar.song.SongFactory;
+import com.sudicode.tunejar.song.SongRegistry;
+import com.sudicode.tunejar.song.TagCache;
 import javafx.application.Application;
 import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.ObservableList;
 import javafx.concurrent.Task;
 import javafx.event.EventHandler;
 import javafx.fxml.FXMLLoader;
@@ -16,13 +20,15 @@ import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ChoiceDialog;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
 import javafx.scene.control.TextArea;
 import javafx.scene.image.Image;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Priority;
-import javafx.scene.media.Media;
 import javafx.scene.media.MediaException;
 import javafx.scene.media.MediaPlayer;
 import javafx.stage.DirectoryChooser;
@@ -30,38 +36,35 @@ import javafx.stage.Screen;
 import javafx.stage.Stage;
 import javafx.stage.Window;
 import javafx.util.Duration;
-import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.SystemUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.io.StringReader;
 import java.io.StringWriter;
 import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.text.DecimalFormat;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
-import java.util.Queue;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.stream.Stream;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 /**
  * Main class.
@@ -74,6 +77,10 @@ public class Player extends Application {
 
     // GUI
     private MediaPlayer mediaPlayer;
+    private MediaPlayerService mediaPlayers;
+    private final ChangeListener<Duration> timeListener = this::showTime;
+    private PlaybackClock playbackClock;
+    private TrackPreloader<MediaPlayer> preloader;
     private Song nowPlaying;
     private Stage primaryStage;
     private Scene scene;
@@ -84,6 +91,12 @@ public class Player extends Application {
     private Playlist masterPlaylist;
     private LinkedHashSet<File> directories;
     private Options options;
+    private TagCache tagCache;
+    private SongRegistry songRegistry;
+    private LibraryWatcher libraryWatcher;
+    private Scheduler scheduler;
+    private RefreshCoordinator refreshCoordinator;
+    private UiDispatcher uiDispatcher;
     private double mediaPlayerSpeed;
 
     /**
@@ -110,6 +123,28 @@ public class Player extends Application {
         }
     }
 
+    /**
+     * Stops background work when the application exits.
+     */
+    @Override
+    public void stop() {
+        if (preloader != null) {
+            preloader.clear();
+        }
+        if (refreshCoordinator != null) {
+            refreshCoordinator.close();
+        }
+        if (libraryWatcher != null) {
+            libraryWatcher.stop();
+        }
+        if (options != null) {
+            options.flush();
+        }
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
     /**
      * Handles program initialization.
      *
@@ -122,6 +157,17 @@ public class Player extends Application {
         setInstance(this);
         setSpeed(1);
         setOptions(new Options(Defaults.PREFERENCES_NODE));
+        setScheduler(new Scheduler(Defaults.TASK_THREADS, Defaults.IO_THREADS, getOptions().getScanThreads()));
+        getOptions().writeBehind(getScheduler().ui());
+        setUiDispatcher(new UiDispatcher(getScheduler().ui(), Platform::runLater, Defaults.UI_FRAME_INTERVAL));
+        setMediaPlayers(new MediaPlayerService(Defaults.MEDIA_CACHE_SIZE));
+        preloader = new TrackPreloader<>(getScheduler().tasks(), Platform::runLater, getMediaPlayers()::create,
+                getMediaPlayers()::dispose);
+        refreshCoordinator = new RefreshCoordinator(this::newRefresher, getScheduler().tasks());
+        setTagCache(new TagCache(Defaults.TAG_CACHE));
+        setSongRegistry(new SongRegistry(getTagCache()::get, getScheduler().parse(), getScheduler().getParseThreads()));
+        libraryWatcher = new LibraryWatcher(this, getTagCache());
+        libraryWatcher.start();
 
         // Load the FXML file and display the interface.
         primaryStage = stage;
@@ -212,12 +258,20 @@ public class Player extends Application {
     public void restart() {
         primaryStage.close();
 
-        // Stop any playing songs
+        // Stop any playing songs and background work
         stopSong();
+        preloader.clear();
+        refreshCoordinator.close();
+        libraryWatcher.stop();
+        options.flush();
+        scheduler.shutdown();
 
         // Set variables to null
         instance = null;
         mediaPlayer = null;
+        mediaPlayers = null;
+        playbackClock = null;
+        preloader = null;
         nowPlaying = null;
         scene = null;
         controller = null;
@@ -225,6 +279,12 @@ public class Player extends Application {
         masterPlaylist = null;
         directories = null;
         options = null;
+        tagCache = null;
+        songRegistry = null;
+        libraryWatcher = null;
+        scheduler = null;
+        refreshCoordinator = null;
+        uiDispatcher = null;
 
         // Re-initialize
         try {
@@ -236,24 +296,44 @@ public class Player extends Application {
 
     /**
      * First, adds all music files that can be found in available directories to
-     * the master playlist. Then loads all available playlists.
+     * the master playlist. Then loads all available playlists. A refresh
+     * which is in flight is cancelled, and requests made before it has
+     * returned are coalesced into a single new refresh.
      */
     public void refresh() {
+        refreshCoordinator.request();
+    }
+
+    /**
+     * Creates a new {@link Refresher}, which reports its progress in the status bar.
+     *
+     * @return The refresher
+     */
+    private Task<?> newRefresher() {
         Task<?> refresher = new Refresher();
-        refresher.progressProperty().addListener((obs, oldVal, newVal) -> getController().getStatus()
-                .setText(refresher.getMessage() + new DecimalFormat("#0%").format(newVal)));
-        ExecutorService executor = Executors.newSingleThreadExecutor();
-        Future<?> future = executor.submit(refresher);
-        executor.shutdown();
-        new Thread(() -> {
-            try {
-                future.get(Defaults.TIMEOUT, TimeUnit.SECONDS);
-            } catch (ExecutionException | InterruptedException | TimeoutException e) {
-                logger.error(e.getMessage(), e);
-                Platform.runLater(() -> getController().getStatus()
-                        .setText("An error has occurred: " + e.getClass().getSimpleName()));
-            }
-        }).start();
+        refresher.setOnFailed(event -> showRefreshError(refresher.getException()));
+        return refresher;
+    }
+
+    /**
+     * Logs a refresh error and shows it in the status bar. Must be called on the JavaFX application thread.
+     *
+     * @param e The error
+     */
+    private void showRefreshError(Throwable e) {
+        logger.error(e.getMessage(), e);
+        showStatus("An error has occurred: " + e.getClass().getSimpleName());
+    }
+
+    /**
+     * Shows a message in the status bar. The message goes through the {@link UiDispatcher}, like the progress of a
+     * refresh, so that it cannot be overwritten by progress which was reported before it.
+     *
+     * @param message The message
+     */
+    private void showStatus(String message) {
+        Label status = getController().getStatus();
+        getUiDispatcher().post(status, () -> status.setText(message));
     }
 
     /**
@@ -261,6 +341,17 @@ public class Player extends Application {
      * <code>refresh()</code> method.
      */
     private class Refresher extends Task<Void> {
+
+        /**
+         * The scan in progress.
+         */
+        private ScanPipeline pipeline;
+
+        /**
+         * The directories which were accessible when the scan started.
+         */
+        private final List<File> scanned = new ArrayList<>();
+
         /**
          * The main task associated with the <code>refresh()</code> method. This
          * is an expensive call, so it is <b>not</b> recommended to run it on
@@ -271,120 +362,287 @@ public class Player extends Application {
             logger.info("Refresh call started.");
             long begin = System.nanoTime();
 
-            refreshMasterPlaylist();
-            List<Playlist> playlists = getPlaylists();
+            // Bulk load the tag cache, so that only new or modified files need to be parsed.
+            List<Song> snapshot = Collections.emptyList();
+            if (!isInitialized()) {
+                getTagCache().load();
+                if (directories != null) {
+                    snapshot = getTagCache().getAll(directories);
+                    logger.info("Loaded {} songs from the tag cache.", snapshot.size());
+                }
+            }
+
+            List<Song> library;
+            if (!snapshot.isEmpty()) {
+                // Show the library as it was when the tag cache was last saved, then catch up with the changes since.
+                Playlist master = new Playlist("All Music");
+                master.addAll(snapshot);
+                getSongRegistry().putAll(snapshot);
+                showLibrary(master, getPlaylists());
+                library = scan(s -> reportProgress());
+                applyDifferences(snapshot, library);
+            } else {
+                boolean streaming = getOptions().isStreamingRefresh();
+                Playlist master = new Playlist("All Music");
+                library = refreshMasterPlaylist(master, streaming);
+                showLibrary(streaming ? null : master, getPlaylists());
+            }
+            if (!isCancelled()) {
+                // Forget the files which were not found again, but only inside of the directories which were scanned.
+                getTagCache().sweep(scanned);
+                getSongRegistry().retainAll(scanned, library);
+            }
+            getTagCache().save();
+
+            String elapsedSeconds = new DecimalFormat("0.000").format((System.nanoTime() - begin) / 1000000000.0);
+            logger.info("Refresh call complete. Time elapsed: {}s", elapsedSeconds);
+            logger.debug("Scheduler threads (active/live): {}", getScheduler());
+            return null;
+        }
 
-            // Refresh the view.
+        /**
+         * Refreshes the view once the library has been loaded.
+         *
+         * @param master    The new master playlist, or <code>null</code> if it is already displayed
+         * @param playlists The user's playlists, which are only displayed on the first refresh
+         */
+        private void showLibrary(Playlist master, List<Playlist> playlists) {
             Platform.runLater(() -> {
+                if (isCancelled()) {
+                    return;
+                }
+                if (master != null) {
+                    showMasterPlaylist(master);
+                }
                 if (!isInitialized()) {
-                    getController().getPlaylistMenu().loadPlaylist(getMasterPlaylist());
                     playlists.forEach(getController().getPlaylistMenu()::loadPlaylist);
                     getController().getVolumeSlider().setValue(getOptions().getVolume());
-                } else {
-                    getController().getPlaylistList().set(0, getMasterPlaylist());
                 }
                 getController().refreshTables();
                 getController().focus(getController().getPlaylistTable(), 0);
-                getController().getStatus().setText("");
+                showStatus("");
                 setInitialized(true);
             });
+        }
 
-            String elapsedSeconds = new DecimalFormat("0.000").format((System.nanoTime() - begin) / 1000000000.0);
-            logger.info("Refresh call complete. Time elapsed: {}s", elapsedSeconds);
-            return null;
+        /**
+         * Fills a new master playlist with all supported audio files found in
+         * the set of directories. In streaming mode, the new master playlist
+         * is displayed right away and songs are published to it in batches as
+         * they are parsed.
+         *
+         * @param master    The new master playlist
+         * @param streaming <code>true</code> to publish songs while scanning
+         * @return The songs which were found
+         * @throws InterruptedException if the current thread was interrupted while waiting
+         */
+        private List<Song> refreshMasterPlaylist(Playlist master, boolean streaming) throws InterruptedException {
+            BatchPublisher<Song> publisher = null;
+            if (streaming) {
+                Platform.runLater(() -> showMasterPlaylist(master));
+                publisher = new BatchPublisher<>(getUiDispatcher(), Defaults.REFRESH_BATCH_SIZE,
+                        Defaults.REFRESH_BATCH_INTERVAL, batch -> appendToMasterPlaylist(master, batch));
+            }
+
+            BatchPublisher<Song> p = publisher;
+            List<Song> library = scan(s -> {
+                getSongRegistry().put(s);
+                if (p != null) {
+                    p.add(s);
+                } else {
+                    master.add(s);
+                }
+                reportProgress();
+            });
+            if (publisher != null) {
+                publisher.finish();
+                // The batches were appended in the order they were scanned, so sort the song table once they are in.
+                TableView<Song> songTable = getController().getSongTable();
+                getUiDispatcher().post(songTable, songTable::sort);
+            }
+            return library;
         }
 
         /**
-         * Clears the master playlist, then constructs a new one out of all
-         * supported audio files found in the set of directories.
+         * Scans every supported audio file in the set of directories.
          *
+         * @param collector Receives each song as soon as it is parsed
+         * @return The songs which were found
          * @throws InterruptedException if the current thread was interrupted while waiting
-         * @throws ExecutionException   if the computation threw an exception
          */
-        private void refreshMasterPlaylist() throws InterruptedException, ExecutionException {
-            setMasterPlaylist(new Playlist("All Music"));
+        private List<Song> scan(Consumer<Song> collector) throws InterruptedException {
+            List<Song> library = new ArrayList<>();
             if (directories != null) {
                 logger.info("Found directories: " + directories);
                 logger.info("Populating the master playlist...");
+                directories.stream().filter(File::isDirectory).forEach(scanned::add);
+
+                pipeline = new ScanPipeline(getScheduler(), getOptions().getWalkThreads(),
+                        Defaults.SCAN_QUEUE_CAPACITY, getTagCache()::get);
+                showProgress("Scanning songs... ", 0, 0);
+                pipeline.run(directories, s -> {
+                    library.add(s);
+                    collector.accept(s);
+                });
+                reportProgress();
+                logger.info("Scanned {} files: {} songs, {} failed", pipeline.getWalked(), pipeline.getParsed(),
+                        pipeline.getFailed());
+                libraryWatcher.reset(directories, library);
+            }
+            return library;
+        }
 
-                Collection<Future<Song>> sFutures = getFutures(directories);
-                long workDone = 0;
-                long max = sFutures.size();
-                updateMessage("Updating songs... ");
-                for (Future<Song> song : sFutures) {
-                    getMasterPlaylist().add(song.get());
-                    updateProgress(++workDone, max);
+        /**
+         * Compares a freshly scanned library against the snapshot it was
+         * displayed from, and applies only the differences.
+         *
+         * @param snapshot The songs which are displayed
+         * @param library  The songs which were found
+         */
+        private void applyDifferences(List<Song> snapshot, List<Song> library) {
+            Map<String, Song> missing = new HashMap<>();
+            snapshot.forEach(s -> missing.put(s.getAbsoluteFilename(), s));
+            List<Song> changed = new ArrayList<>();
+            for (Song s : library) {
+                Song old = missing.remove(s.getAbsoluteFilename());
+                if (old == null || !old.getTitle().equals(s.getTitle()) || !old.getArtist().equals(s.getArtist())
+                        || !old.getAlbum().equals(s.getAlbum())) {
+                    changed.add(s);
                 }
             }
+            Set<String> removed = new HashSet<>(missing.keySet());
+
+            logger.info("Library changed since the snapshot: {} added or modified, {} removed", changed.size(),
+                    removed.size());
+            if (!changed.isEmpty() || !removed.isEmpty()) {
+                Platform.runLater(() -> {
+                    if (!isCancelled()) {
+                        updateLibrary(changed, removed);
+                    }
+                });
+            }
+        }
+
+        /**
+         * Reports the progress of each stage of the scan: files found by the
+         * walker, songs parsed, and files which failed to parse. This is
+         * called for every song, but only the latest progress is formatted
+         * and shown, once per frame.
+         */
+        private void reportProgress() {
+            long parsed = pipeline.getParsed();
+            long failed = pipeline.getFailed();
+            long walked = pipeline.getWalked();
+            Label status = getController().getStatus();
+            getUiDispatcher().post(status, () -> status.setText(String.format(
+                    "Scanning songs (%d found, %d parsed, %d failed)... %d%%", walked, parsed, failed,
+                    walked > 0 ? (parsed + failed) * 100 / walked : 0)));
+        }
+
+        /**
+         * Shows a message in the status bar, followed by the percentage of
+         * work done.
+         *
+         * @param message The message
+         * @param done    Amount of work done
+         * @param total   Total amount of work, or 0 if it is not known yet
+         */
+        private void showProgress(String message, long done, long total) {
+            showStatus(total > 0 ? message + done * 100 / total + "%" : message);
         }
 
         /**
-         * Constructs playlists out of all m3u files found in the playlists
-         * folder. The constructed playlists are then wrapped into a collection.
+         * Constructs playlists out of the saved song paths. Songs are looked
+         * up in the {@link SongRegistry}, which was just filled by the library
+         * scan, so only files outside of the music directories are parsed.
+         * Those are parsed in batches on the parse pool first.
          *
          * @return The collection of constructed playlists.
-         * @throws InterruptedException if the current thread was interrupted while waiting
-         * @throws ExecutionException   if the computation threw an exception
+         * @throws InterruptedException if the refresh was cancelled
          */
-        private List<Playlist> getPlaylists() throws InterruptedException, ExecutionException {
+        private List<Playlist> getPlaylists() throws InterruptedException {
             List<Playlist> playlists = new ArrayList<>();
             if (!isInitialized()) {
-                List<Future<Playlist>> pFutures = new ArrayList<>();
-                ExecutorService outerExec = Executors.newWorkStealingPool();
-
-                // Iterate through each playlist.
-                LinkedHashMap<String, String> lhm = getOptions().getPlaylists();
-                for (Entry<String, String> nameToM3UString : lhm.entrySet()) {
-                    pFutures.add(outerExec.submit(() -> createPlaylist(nameToM3UString)));
+                LinkedHashMap<String, List<String>> lhm = getOptions().getPlaylists(getScheduler().parse());
+                Set<String> external = new LinkedHashSet<>();
+                lhm.values().forEach(paths -> paths.stream()
+                        .filter(path -> getSongRegistry().lookup(new File(path)) == null).forEach(external::add));
+                if (!external.isEmpty()) {
+                    List<File> files = external.stream().map(File::new).collect(Collectors.toList());
+                    showProgress("Parsing playlist songs... ", 0, files.size());
+                    getSongRegistry().getAll(files, getScheduler().parse(), Defaults.PLAYLIST_PARSE_BATCH_SIZE,
+                            done -> showProgress("Parsing playlist songs... ", done, files.size()));
                 }
-                outerExec.shutdown();
-                for (Future<Playlist> playlist : pFutures) {
-                    playlists.add(playlist.get());
+                for (Entry<String, List<String>> nameToPaths : lhm.entrySet()) {
+                    if (isCancelled()) {
+                        throw new InterruptedException("Refresh cancelled");
+                    }
+                    showProgress("Updating " + nameToPaths.getKey() + "... ", playlists.size(), lhm.size());
+                    playlists.add(createPlaylist(nameToPaths));
                 }
+                logger.info("Loaded {} playlists, {} songs registered", playlists.size(),
+                        getSongRegistry().size());
             }
             return playlists;
         }
 
         /**
-         * Creates a playlist out of an m3u file.
+         * Creates a playlist out of its saved song paths.
          *
-         * @param nameToM3UString An {@link Entry} which maps playlist name to the contents of its respective M3U file.
-         * @throws IOException          If an I/O error occurs
-         * @throws InterruptedException if the current thread was interrupted while waiting
-         * @throws ExecutionException   if the computation threw an exception
+         * @param nameToPaths An {@link Entry} which maps playlist name to the absolute paths of its songs.
+         * @return The playlist
          */
-        private Playlist createPlaylist(Entry<String, String> nameToM3UString) throws IOException, InterruptedException, ExecutionException {
-            String name = nameToM3UString.getKey();
-            String m3uString = nameToM3UString.getValue();
-
-            Playlist playlist = new Playlist(name);
-            Queue<Future<Song>> sFutures = new ArrayDeque<>();
-
-            // Get each song, line by line.
-            try (BufferedReader reader = new BufferedReader(new StringReader(m3uString))) {
-                ExecutorService innerExec = Executors.newWorkStealingPool();
-                for (String nextLine; (nextLine = reader.readLine()) != null; ) {
-                    final String s = nextLine;
-                    sFutures.add(innerExec.submit(() -> SongFactory.create(new File(s))));
+        private Playlist createPlaylist(Entry<String, List<String>> nameToPaths) {
+            Playlist playlist = new Playlist(nameToPaths.getKey());
+
+            for (String path : nameToPaths.getValue()) {
+                Song s = getSongRegistry().lookup(new File(path));
+                if (s != null) {
+                    playlist.add(s);
+                    logger.debug("Added song: {} to playlist: {}", s, playlist.getName());
+                } else {
+                    logger.error("Could not add file: " + path + " to playlist: " + playlist.getName());
                 }
-                innerExec.shutdown();
-            }
-
-            // Add each song to the playlist.
-            long workDone = 0;
-            long max = sFutures.size();
-            for (Future<Song> song : sFutures) {
-                updateMessage("Updating " + playlist.getName() + "...");
-                Song s = song.get();
-                playlist.add(s);
-                logger.debug("Added song: {} to playlist: {}", s, playlist.getName());
-                updateProgress(++workDone, max);
             }
             return playlist;
         }
 
     }
 
+    /**
+     * Displays a (possibly still empty) master playlist in place of the
+     * current one. Must be called on the JavaFX application thread.
+     *
+     * @param master The new master playlist
+     */
+    private void showMasterPlaylist(Playlist master) {
+        setMasterPlaylist(master);
+        if (!isInitialized()) {
+            getController().getPlaylistMenu().loadPlaylist(master);
+        } else {
+            getController().getPlaylistList().set(0, master);
+        }
+        getController().refreshFilter();
+    }
+
+    /**
+     * Appends a batch of freshly scanned songs to the master playlist, and to
+     * the song table if it is displaying the master playlist. The table is
+     * not sorted for every batch, but once the scan is over. Must be called
+     * on the JavaFX application thread.
+     *
+     * @param master The master playlist
+     * @param batch  The songs to append
+     */
+    private void appendToMasterPlaylist(Playlist master, List<Song> batch) {
+        master.addAll(batch);
+        if (getController().getPlaylistTable().getSelectionModel().getSelectedItem() == master) {
+            getController().getSongList().addAll(batch);
+            // Batches usually arrive faster than the filter delay, so the filter catches up once the scan pauses.
+            getController().refreshFilter();
+        }
+    }
+
     // ------------------- Media Player Controls ------------------- //
 
     /**
@@ -397,49 +655,80 @@ public class Player extends Application {
             stopSong();
         }
         setNowPlaying(song);
-        String uriString = new File(song.getAbsoluteFilename()).toURI().toString();
         try {
-            mediaPlayer = new MediaPlayer(new Media(uriString));
-            logger.debug("Loaded song: " + uriString);
+            // Use the preloaded player if the song was expected, so that it starts without opening the file first.
+            MediaPlayer preloaded = preloader.take(song);
+            if (preloaded != null && preloaded.getStatus() != MediaPlayer.Status.HALTED) {
+                mediaPlayer = preloaded;
+                logger.debug("Using preloaded song ({}): {}", preloaded.getStatus(), song);
+            } else {
+                getMediaPlayers().dispose(preloaded);
+                mediaPlayer = getMediaPlayers().create(song);
+            }
             setVolume(getController().getVolumeSlider().getValue());
             logger.info("Playing: " + getNowPlaying());
 
-            mediaPlayer.currentTimeProperty().addListener((val, oldTime, newTime) -> {
-                if (mediaPlayer == null) {
-                    return;
-                }
+            // Show the current time, total duration and seek bar, which only change once per second or pixel.
+            getPlaybackClock().reset();
+            getMediaPlayers().attach(mediaPlayer, timeListener);
 
-                // Current Time
-                int ctMin = (int) newTime.toMinutes();
-                int ctSec = (int) newTime.toSeconds();
-                String ctMinSec = String.format("%01d:%02d", ctMin, ctSec - ctMin * 60);
-                getController().getCurrentTime().setText(ctMinSec);
+            // Play the song
+            mediaPlayer.setRate(getSpeed());
+            mediaPlayer.play();
+        } catch (MediaException e) {
+            getController().getStatus().setText("Failed to play the song.");
+            logger.error(e.getMessage(), e);
+        }
+    }
 
-                // Total Duration
-                int tdMin = (int) mediaPlayer.getMedia().getDuration().toMinutes();
-                int tdSec = (int) mediaPlayer.getMedia().getDuration().toSeconds();
-                String tdMinSec = String.format("%01d:%02d", tdMin, tdSec - tdMin * 60);
-                getController().getTotalDuration().setText(tdMinSec);
+    /**
+     * Prepares a player for the song which is expected to play next, in the background. If that song is then played,
+     * it starts right away, rather than after its file is opened.
+     *
+     * @param song The song which is expected to play next, or <code>null</code> if none is
+     */
+    public void preload(Song song) {
+        preloader.preload(song);
+    }
 
-                // Seek Bar
-                getController().getSeekBar().setProgress(((double) ctSec / (double) tdSec));
-            });
+    /**
+     * Finds the {@link PlaybackClock} which shows the position of the song that is playing. The first time, this also
+     * sets up seeking with the seek bar, which applies to whichever song is playing.
+     *
+     * @return The playback clock
+     */
+    private PlaybackClock getPlaybackClock() {
+        if (playbackClock == null) {
+            ProgressBar seekBar = getController().getSeekBar();
+            playbackClock = new PlaybackClock(getController().getCurrentTime()::setText,
+                    getController().getTotalDuration()::setText, seekBar::setProgress, seekBar::getWidth);
 
             // Allow user to seek using the seek bar
             EventHandler<MouseEvent> seeker = event -> {
+                if (mediaPlayer == null) {
+                    return;
+                }
                 int tdSec = (int) mediaPlayer.getMedia().getDuration().toSeconds();
-                double frac = event.getX() / getController().getSeekBar().getWidth();
+                double frac = event.getX() / seekBar.getWidth();
                 mediaPlayer.seek(Duration.seconds(tdSec * frac));
             };
-            getController().getSeekBar().setOnMouseDragged(seeker);
-            getController().getSeekBar().setOnMouseReleased(seeker);
+            seekBar.setOnMouseDragged(seeker);
+            seekBar.setOnMouseReleased(seeker);
+        }
+        return playbackClock;
+    }
 
-            // Play the song
-            mediaPlayer.setRate(getSpeed());
-            mediaPlayer.play();
-        } catch (MediaException e) {
-            getController().getStatus().setText("Failed to play the song.");
-            logger.error(e.getMessage(), e);
+    /**
+     * Shows the current time of the song that is playing. It is attached to one player at a time, and removed when
+     * that player is disposed.
+     *
+     * @param val     The current time property
+     * @param oldTime The previous time
+     * @param newTime The current time
+     */
+    private void showTime(ObservableValue<? extends Duration> val, Duration oldTime, Duration newTime) {
+        if (mediaPlayer != null && playbackClock != null) {
+            playbackClock.update(newTime.toSeconds(), mediaPlayer.getMedia().getDuration().toSeconds());
         }
     }
 
@@ -469,15 +758,18 @@ public class Player extends Application {
     public void stopSong() {
         if (mediaPlayer != null && getNowPlaying() != null) {
             logger.info("Stopping: " + getNowPlaying());
-            mediaPlayer.stop();
         }
+        getMediaPlayers().dispose(mediaPlayer);
+        mediaPlayer = null;
         setNowPlaying(null);
     }
 
     // ------------------- File Manipulation ------------------- //
 
     /**
-     * Adds a user-selected directory to the directory collection.
+     * Adds a user-selected directory to the directory collection. Its songs are added to the library by the
+     * {@link LibraryWatcher}; but if a refresh is in flight, it is restarted instead, since it started scanning before
+     * the directory was added.
      */
     public void addDirectory() {
         File directory = chooseDirectory(primaryStage);
@@ -494,11 +786,16 @@ public class Player extends Application {
             alert.showAndWait();
             logger.error(e.getMessage(), e);
         }
-        refresh();
+        if (refreshCoordinator.isRunning()) {
+            refresh();
+        } else {
+            libraryWatcher.watch(directory);
+        }
     }
 
     /**
-     * Allows the user to choose and remove a directory from the directory set.
+     * Allows the user to choose and remove a directory from the directory set. Like {@link #addDirectory()}, this
+     * restarts a refresh which is in flight rather than updating the library.
      *
      * @return True iff a directory was successfully removed.
      */
@@ -521,6 +818,11 @@ public class Player extends Application {
         if (result.isPresent()) {
             directories.remove(result.get());
             writeDirectories();
+            if (refreshCoordinator.isRunning()) {
+                refresh();
+            } else {
+                libraryWatcher.unwatch(result.get());
+            }
             getController().getStatus().setText("Directory removed.");
             logger.info("Directory removed. Remaining directories:" + directories);
             return true;
@@ -528,6 +830,72 @@ public class Player extends Application {
         return false;
     }
 
+    /**
+     * Applies incremental changes to the master playlist, and to the song table if it is displaying the master
+     * playlist. Must be called on the JavaFX application thread.
+     *
+     * @param changed Songs which were added or modified
+     * @param removed Absolute paths of the files or directories which were removed
+     */
+    void updateLibrary(Collection<Song> changed, Set<String> removed) {
+        Playlist master = getMasterPlaylist();
+        if (master == null) {
+            return;
+        }
+
+        Map<String, Song> changedByPath = new LinkedHashMap<>();
+        changed.forEach(s -> changedByPath.put(s.getAbsoluteFilename(), s));
+        Predicate<Song> isRemoved = s -> FilePaths.isWithin(s.getAbsoluteFilename(), removed);
+
+        // Replace modified songs in place, and remember what they replaced.
+        Map<Song, Song> replacements = new IdentityHashMap<>();
+        for (ListIterator<Song> it = master.listIterator(); it.hasNext(); ) {
+            Song old = it.next();
+            Song replacement = changedByPath.remove(old.getAbsoluteFilename());
+            if (replacement != null) {
+                it.set(replacement);
+                replacements.put(old, replacement);
+            }
+        }
+        master.removeIf(isRemoved);
+        master.addAll(changedByPath.values());
+        getSongRegistry().putAll(changed);
+        getSongRegistry().removeAll(removed);
+
+        // Songs are shared, so the other playlists only need the modified songs swapped in.
+        for (Playlist playlist : getController().getPlaylistList()) {
+            if (playlist != master) {
+                playlist.replaceAll(s -> replacements.getOrDefault(s, s));
+            }
+        }
+
+        // Mirror the changes in the song table, without sorting it again.
+        if (getController().getPlaylistTable().getSelectionModel().getSelectedItem() == master) {
+            ObservableList<Song> songList = getController().getSongList();
+            List<Song> added = new ArrayList<>(master.subList(master.size() - changedByPath.size(), master.size()));
+            Comparator<Song> comparator = getController().getSongComparator();
+            if (comparator == null) {
+                for (ListIterator<Song> it = songList.listIterator(); it.hasNext(); ) {
+                    Song replacement = replacements.get(it.next());
+                    if (replacement != null) {
+                        it.set(replacement);
+                    }
+                }
+                songList.removeIf(isRemoved);
+                songList.addAll(added);
+            } else {
+                // A modified song may now sort elsewhere, so it is merged back in along with the new ones.
+                songList.removeIf(s -> replacements.containsKey(s) || isRemoved.test(s));
+                added.addAll(replacements.values());
+                PlayerController.merge(songList, added, comparator);
+            }
+        }
+        getController().refreshFilter();
+        if (getNowPlaying() != null && isRemoved.test(getNowPlaying())) {
+            stopSong();
+        }
+    }
+
     /**
      * Prompts the user for a directory.
      *
@@ -567,38 +935,6 @@ public class Player extends Application {
         getOptions().setDirectories(directories);
     }
 
-    /**
-     * Traverses each directory, obtaining all supported audio files. Each audio
-     * file found is wrapped in a <code>Future&lt;Song&gt;</code>, which is then
-     * added to a collection.
-     *
-     * @return A collection of type <code>Future&lt;Song&gt;</code>
-     */
-    private Collection<Future<Song>> getFutures(Collection<File> directories) {
-        // Initialization
-        Collection<Future<Song>> futures = HashMultiset.create();
-        ExecutorService executor = Executors.newWorkStealingPool();
-
-        // Loop through directories
-        for (File directory : directories) {
-            if (directory == null || !directory.isDirectory()) {
-                logger.error("Failed to access directory: " + directory + ", skipping...");
-                continue;
-            }
-
-            // Depth first search through each directory for supported files
-            try (Stream<Path> str = Files.walk(directory.toPath())) {
-                str.filter(path -> FilenameUtils.getExtension(path.toString()).matches("mp3|mp4|m4a|wav"))
-                        .forEach(path -> futures.add(executor.submit(() -> SongFactory.create(path.toFile()))));
-            } catch (IOException e) {
-                logger.error("Failed to access directory: " + directory, e);
-            }
-        }
-        executor.shutdown();
-
-        return futures;
-    }
-
     // ------------------- Exception Handling ------------------- //
 
     /**
@@ -649,7 +985,9 @@ public class Player extends Application {
      * @param action An action wrapped in a Runnable
      */
     public void setEndOfSongAction(Runnable action) {
-        mediaPlayer.setOnEndOfMedia(action);
+        if (mediaPlayer != null) {
+            mediaPlayer.setOnEndOfMedia(action);
+        }
     }
 
     /**
@@ -777,6 +1115,76 @@ public class Player extends Application {
         this.options = options;
     }
 
+    /**
+     * @return The {@link TagCache} associated with this {@link Player}.
+     */
+    public TagCache getTagCache() {
+        return tagCache;
+    }
+
+    /**
+     * @param tagCache The {@link TagCache} to set <code>tagCache</code> to
+     */
+    private void setTagCache(TagCache tagCache) {
+        this.tagCache = tagCache;
+    }
+
+    /**
+     * @return The {@link Scheduler} associated with this {@link Player}.
+     */
+    public Scheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * @param scheduler The {@link Scheduler} to set <code>scheduler</code> to
+     */
+    private void setScheduler(Scheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * @return The {@link MediaPlayerService} associated with this {@link Player}.
+     */
+    public MediaPlayerService getMediaPlayers() {
+        return mediaPlayers;
+    }
+
+    /**
+     * @param mediaPlayers The {@link MediaPlayerService} to set <code>mediaPlayers</code> to
+     */
+    private void setMediaPlayers(MediaPlayerService mediaPlayers) {
+        this.mediaPlayers = mediaPlayers;
+    }
+
+    /**
+     * @return The {@link UiDispatcher} associated with this {@link Player}.
+     */
+    public UiDispatcher getUiDispatcher() {
+        return uiDispatcher;
+    }
+
+    /**
+     * @param uiDispatcher The {@link UiDispatcher} to set <code>uiDispatcher</code> to
+     */
+    private void setUiDispatcher(UiDispatcher uiDispatcher) {
+        this.uiDispatcher = uiDispatcher;
+    }
+
+    /**
+     * @return The {@link SongRegistry} associated with this {@link Player}.
+     */
+    public SongRegistry getSongRegistry() {
+        return songRegistry;
+    }
+
+    /**
+     * @param songRegistry The {@link SongRegistry} to set <code>songRegistry</code> to
+     */
+    private void setSongRegistry(SongRegistry songRegistry) {
+        this.songRegistry = songRegistry;
+    }
+
     /**
      * Set playback speed.
      *
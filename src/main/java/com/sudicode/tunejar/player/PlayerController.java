@@ -10,9 +10,14 @@ import com.sudicode.tunejar.menu.ThemeMenu;
 import com.sudicode.tunejar.menu.VolumeMenu;
 import com.sudicode.tunejar.song.Playlist;
 import com.sudicode.tunejar.song.Song;
+import com.sudicode.tunejar.song.SongKeys;
+import com.sudicode.tunejar.song.SongQuery;
+import com.sudicode.tunejar.song.SongRegistry;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.Button;
@@ -27,8 +32,8 @@ import javafx.scene.control.Slider;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableRow;
 import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
 import javafx.scene.control.ToolBar;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.MouseButton;
 import org.slf4j.Logger;
@@ -36,8 +41,15 @@ import org.slf4j.LoggerFactory;
 
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
 
@@ -47,6 +59,8 @@ public class PlayerController implements Initializable {
 
     // Lists
     private ObservableList<Song> songList;
+    private FilteredList<Song> filteredSongList;
+    private LiveFilter<Song> songFilter;
     private ObservableList<Playlist> playlistList;
 
     // Menus
@@ -105,6 +119,8 @@ public class PlayerController implements Initializable {
     private CheckMenuItem menuShuffle = new CheckMenuItem();
     @FXML
     private MenuBar topMenuBar = new MenuBar();
+    @FXML
+    private TextField filterField = new TextField();
 
     // --------------- Initialization --------------- //
 
@@ -131,29 +147,49 @@ public class PlayerController implements Initializable {
         setSongList(FXCollections.observableArrayList());
 
         // Set up the title column.
-        getTitleColumn().setCellValueFactory(new PropertyValueFactory<>("Title"));
+        getTitleColumn().setCellValueFactory(cell -> cell.getValue().titleProperty());
         getTitleColumn().setSortType(getPlayer().getOptions().getTitleSortDirection());
         getTitleColumn().sortTypeProperty().addListener((val, oldDir, newDir) -> {
             getPlayer().getOptions().setTitleSortDirection(newDir.toString());
         });
 
         // Set up the artist column.
-        getArtistColumn().setCellValueFactory(new PropertyValueFactory<>("Artist"));
+        getArtistColumn().setCellValueFactory(cell -> cell.getValue().artistProperty());
         getArtistColumn().setSortType(getPlayer().getOptions().getArtistSortDirection());
         getArtistColumn().sortTypeProperty().addListener((val, oldDir, newDir) -> {
             getPlayer().getOptions().setArtistSortDirection(newDir.toString());
         });
 
         // Set up the album column.
-        getAlbumColumn().setCellValueFactory(new PropertyValueFactory<>("Album"));
+        getAlbumColumn().setCellValueFactory(cell -> cell.getValue().albumProperty());
         getAlbumColumn().setSortType(getPlayer().getOptions().getAlbumSortDirection());
         getAlbumColumn().sortTypeProperty().addListener((val, oldDir, newDir) -> {
             getPlayer().getOptions().setAlbumSortDirection(newDir.toString());
         });
 
-        // Add in songs.
-        getSongTable().setItems(getSongList());
+        // Add in songs. The table shows a filtered view of the song list, which cannot be sorted itself, so sort the
+        // song list instead.
+        getSongTable().setItems(getFilteredSongList());
         getSongTable().getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        getSongTable().setSortPolicy(table -> {
+            Comparator<Song> comparator = getSongComparator();
+            if (comparator != null) {
+                FXCollections.sort(getSongList(), comparator);
+            }
+            return true;
+        });
+
+        // Narrow the song table as the user types a query into the filter field.
+        Scheduler scheduler = getPlayer().getScheduler();
+        songFilter = new LiveFilter<>(scheduler.ui(), scheduler.tasks(), Platform::runLater, Defaults.FILTER_DELAY,
+                query -> {
+                    SongRegistry registry = getPlayer().getSongRegistry();
+                    Set<Song> matches = Collections.newSetFromMap(new IdentityHashMap<>());
+                    matches.addAll(SongQuery.parse(query).filter(registry.getSongs(), registry.getSearchIndex(),
+                            scheduler.parse(), scheduler.getParseThreads()));
+                    return matches::contains;
+                }, predicate -> getFilteredSongList().setPredicate(predicate));
+        filterField.textProperty().addListener((obs, oldText, newText) -> songFilter.update(newText));
 
         // When sort order is modified, save changes to the options file.
         getSongTable().getSortOrder().addListener((ListChangeListener<TableColumn<Song, ?>>) c -> {
@@ -208,7 +244,7 @@ public class PlayerController implements Initializable {
 
         // Initialize the playlist table.
         setPlaylistList(FXCollections.observableArrayList());
-        name.setCellValueFactory(new PropertyValueFactory<>("Name"));
+        name.setCellValueFactory(cell -> cell.getValue().nameProperty());
         getPlaylistTable().setItems(getPlaylistList());
 
         // When a song is selected, update the status bar.
@@ -247,7 +283,7 @@ public class PlayerController implements Initializable {
 
             // When a playlist is selected, display it.
             setSongList(FXCollections.observableArrayList(getPlaylistTable().getSelectionModel().getSelectedItem()));
-            getSongTable().setItems(getSongList());
+            getSongTable().setItems(getFilteredSongList());
             getPlaybackMenu().buildShuffledRowList();
 
             // The master playlist cannot be renamed, deleted, exported, or altered,
@@ -394,33 +430,141 @@ public class PlayerController implements Initializable {
         t.scrollTo(index);
     }
 
+    /**
+     * Refreshes both tables after songs or playlists were edited. The cells are bound to the properties of the songs
+     * and playlists, and the rows to the lists, so edits and additions already repainted the cells and rows which they
+     * touched, and the selection followed them. All that is left is to select the first playlist if none is.
+     */
     public void refreshTables() {
-        // Keep tabs on what was selected before.
-        List<Playlist> selectedPlaylists = new ArrayList<>(getPlaylistTable().getSelectionModel().getSelectedItems());
-        List<Song> selectedSongs = new ArrayList<>(getSongTable().getSelectionModel().getSelectedItems());
-
-        // Where the actual "refreshing" is done
-        getSongTable().getColumns().get(0).setVisible(false);
-        getSongTable().getColumns().get(0).setVisible(true);
-        getSongTable().getSelectionModel().select(0);
-
-        getPlaylistTable().getColumns().get(0).setVisible(false);
-        getPlaylistTable().getColumns().get(0).setVisible(true);
-        getPlaylistTable().getSelectionModel().select(0);
-
-        // Re-select what was selected before.
-        if (!selectedPlaylists.isEmpty()) {
-            getPlaylistTable().getSelectionModel().clearSelection();
-            for (Playlist p : selectedPlaylists) {
-                getPlaylistTable().getSelectionModel().select(p);
+        if (getPlaylistTable().getSelectionModel().isEmpty() && !getPlaylistTable().getItems().isEmpty()) {
+            getPlaylistTable().getSelectionModel().select(0);
+        }
+    }
+
+    /**
+     * Adds songs to a playlist, and to the song table if it is displaying the playlist, so that the table only gains
+     * the new rows. If the table is sorted, the songs are merged into place rather than sorting the whole table again.
+     *
+     * @param playlist The playlist
+     * @param songs    The songs to add
+     */
+    public void addSongs(Playlist playlist, List<Song> songs) {
+        playlist.addAll(songs);
+        if (getPlaylistTable().getSelectionModel().getSelectedItem() == playlist) {
+            Comparator<Song> comparator = getSongComparator();
+            if (comparator != null) {
+                merge(getSongList(), songs, comparator);
+            } else {
+                getSongList().addAll(songs);
+            }
+            refreshFilter();
+        }
+    }
+
+    /**
+     * Merges items into a sorted list. The items are sorted among themselves, then each run of them which belongs
+     * between the same two elements of the list is inserted at once, after any equal elements. This takes
+     * O(k log k + k log n) comparisons for k items and a list of n elements, and fires one change per run.
+     *
+     * @param sorted     The sorted list
+     * @param items      The items to merge into it
+     * @param comparator The order of the list
+     * @param <T>        The type of element
+     */
+    static <T> void merge(List<T> sorted, Collection<? extends T> items, Comparator<? super T> comparator) {
+        List<T> batch = new ArrayList<>(items);
+        batch.sort(comparator);
+        int index = 0;
+        for (int i = 0; i < batch.size(); ) {
+            // Find the first element which is greater than the item; everything before the previous run is smaller.
+            int low = index;
+            int high = sorted.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (comparator.compare(sorted.get(mid), batch.get(i)) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            int end = i + 1;
+            while (end < batch.size()
+                    && (low == sorted.size() || comparator.compare(batch.get(end), sorted.get(low)) < 0)) {
+                end++;
+            }
+            sorted.addAll(low, batch.subList(i, end));
+            index = low + end - i;
+            i = end;
+        }
+    }
+
+    /**
+     * Removes the selected rows from the song table, and the occurrences of their songs which those rows show from the
+     * playlist which it displays. The rows are removed one at a time, bottom up, so that the table only loses those
+     * rows; then the row which took the place of the first of them is selected.
+     */
+    public void removeSelectedSongs() {
+        TableView.TableViewSelectionModel<Song> selection = getSongTable().getSelectionModel();
+        int[] rows = selection.getSelectedIndices().stream().mapToInt(Integer::intValue).sorted().toArray();
+        int[] sourceRows = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            sourceRows[i] = getFilteredSongList().getSourceIndex(rows[i]);
+        }
+        Arrays.sort(sourceRows);
+
+        Playlist playlist = getPlaylistTable().getSelectionModel().getSelectedItem();
+        int[] positions = positionsOf(getSongList(), sourceRows, playlist);
+        for (int i = positions.length - 1; i >= 0; i--) {
+            playlist.remove(positions[i]);
+        }
+        selection.clearSelection();
+        for (int i = sourceRows.length - 1; i >= 0; i--) {
+            getSongList().remove(sourceRows[i]);
+        }
+        if (rows.length > 0 && !getFilteredSongList().isEmpty()) {
+            selection.select(Math.min(rows[0], getFilteredSongList().size() - 1));
+        }
+    }
+
+    /**
+     * Finds the elements of a list which some rows of another view of it show. A list may hold the same element more
+     * than once, so each row is matched by occurrence: the n-th row showing an element is the n-th occurrence of that
+     * element in the list. This holds even if the view is sorted, since sorting is stable.
+     *
+     * @param view The view, holding the same elements as the list
+     * @param rows Indices into the view, in ascending order
+     * @param list The list
+     * @param <T>  The type of element
+     * @return The indices of the elements which the rows show, in ascending order
+     */
+    static <T> int[] positionsOf(List<T> view, int[] rows, List<T> list) {
+        // Occurrences of each selected element which the rows show, numbered from 0.
+        Map<T, Set<Integer>> wanted = new IdentityHashMap<>();
+        for (int row : rows) {
+            wanted.put(view.get(row), new HashSet<>());
+        }
+        Map<T, Integer> seen = new IdentityHashMap<>();
+        for (int i = 0, r = 0; i < view.size() && r < rows.length; i++) {
+            T element = view.get(i);
+            if (wanted.containsKey(element)) {
+                int occurrence = seen.merge(element, 1, Integer::sum) - 1;
+                if (i == rows[r]) {
+                    wanted.get(element).add(occurrence);
+                    r++;
+                }
             }
         }
-        if (!selectedSongs.isEmpty()) {
-            getSongTable().getSelectionModel().clearSelection();
-            for (Song s : selectedSongs) {
-                getSongTable().getSelectionModel().select(s);
+
+        seen.clear();
+        int[] positions = new int[rows.length];
+        int count = 0;
+        for (int i = 0; i < list.size() && count < positions.length; i++) {
+            Set<Integer> occurrences = wanted.get(list.get(i));
+            if (occurrences != null && occurrences.contains(seen.merge(list.get(i), 1, Integer::sum) - 1)) {
+                positions[count++] = i;
             }
         }
+        return Arrays.copyOf(positions, count);
     }
 
     // --------------- Getters and Setters --------------- //
@@ -465,8 +609,58 @@ public class PlayerController implements Initializable {
         return songList;
     }
 
+    /**
+     * Replaces the song list, and wraps it in a new filtered view which keeps the current filter.
+     *
+     * @param songList The new song list
+     */
     public void setSongList(ObservableList<Song> songList) {
         this.songList = songList;
+        this.filteredSongList = new FilteredList<>(songList, songFilter != null ? songFilter.getPredicate() : null);
+    }
+
+    /**
+     * Builds a comparator for the song table's sort order out of the songs' collation keys. Unlike the table's own
+     * comparator, it neither looks up cell values nor allocates anything per comparison.
+     *
+     * @return The comparator, or <code>null</code> if the song table is not sorted
+     */
+    public Comparator<Song> getSongComparator() {
+        Comparator<Song> comparator = null;
+        for (TableColumn<Song, ?> column : getSongTable().getSortOrder()) {
+            Comparator<Song> c;
+            if (column == getTitleColumn()) {
+                c = SongKeys.BY_TITLE;
+            } else if (column == getArtistColumn()) {
+                c = SongKeys.BY_ARTIST;
+            } else if (column == getAlbumColumn()) {
+                c = SongKeys.BY_ALBUM;
+            } else {
+                continue;
+            }
+            if (column.getSortType() == TableColumn.SortType.DESCENDING) {
+                c = c.reversed();
+            }
+            comparator = comparator == null ? c : comparator.thenComparing(c);
+        }
+        return comparator;
+    }
+
+    /**
+     * Filters the song table again, since songs have been added or replaced. The filter only knows the songs which
+     * existed when it was last matched, so songs added since then stay hidden until this is called.
+     */
+    public void refreshFilter() {
+        if (songFilter != null) {
+            songFilter.refresh();
+        }
+    }
+
+    /**
+     * @return The songs which are shown in the song table: the song list, narrowed down by the filter field.
+     */
+    public FilteredList<Song> getFilteredSongList() {
+        return filteredSongList;
     }
 
     public Menu getThemeSelector() {
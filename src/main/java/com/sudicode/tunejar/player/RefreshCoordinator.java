@@ -0,0 +1,112 @@
+package com.sudicode.tunejar.player;
+
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RunnableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Makes sure that at most one refresh runs at a time. Requesting a refresh while one is in flight cancels the one in
+ * flight, since its results are already stale, and starts a new refresh once the cancelled one has actually stopped.
+ * Any number of requests made in the meantime are coalesced into that single new refresh. All methods must be called
+ * on the JavaFX application thread.
+ */
+public final class RefreshCoordinator {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshCoordinator.class);
+
+    private final Supplier<? extends RunnableFuture<?>> factory;
+    private final Executor executor;
+    private final Executor fxThread;
+
+    private RunnableFuture<?> current;
+    private boolean pending;
+    private boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param factory  Creates a new refresh task
+     * @param executor Runs the refresh tasks
+     */
+    public RefreshCoordinator(Supplier<Task<?>> factory, Executor executor) {
+        this(factory, executor, Platform::runLater);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param factory  Creates a new refresh task
+     * @param executor Runs the refresh tasks
+     * @param fxThread Learns that a task has returned, normally {@link Platform#runLater(Runnable)}
+     */
+    RefreshCoordinator(Supplier<? extends RunnableFuture<?>> factory, Executor executor, Executor fxThread) {
+        this.factory = factory;
+        this.executor = executor;
+        this.fxThread = fxThread;
+    }
+
+    /**
+     * Requests a refresh.
+     */
+    public void request() {
+        if (closed) {
+            return;
+        }
+        if (current == null) {
+            start();
+        } else if (!pending) {
+            logger.info("Refresh requested while another is in flight, cancelling it...");
+            pending = true;
+            current.cancel(true);
+        }
+    }
+
+    /**
+     * Cancels the refresh in flight (if any), and ignores any further requests.
+     */
+    public void close() {
+        closed = true;
+        pending = false;
+        if (current != null) {
+            current.cancel(true);
+        }
+    }
+
+    /**
+     * @return <code>true</code> if a refresh is in flight.
+     */
+    public boolean isRunning() {
+        return current != null;
+    }
+
+    private void start() {
+        RunnableFuture<?> task = factory.get();
+        current = task;
+        executor.execute(() -> {
+            try {
+                task.run();
+            } finally {
+                // A cancelled task reports that it is done right away, but its call() may still be winding down.
+                // Only start the next refresh once it has really returned.
+                fxThread.execute(() -> finished(task));
+            }
+        });
+    }
+
+    private void finished(RunnableFuture<?> task) {
+        if (current != task) {
+            return;
+        }
+        current = null;
+        if (pending && !closed) {
+            pending = false;
+            start();
+        }
+    }
+
+}
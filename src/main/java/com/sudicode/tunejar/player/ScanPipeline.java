@@ -0,0 +1,224 @@
+package com.sudicode.tunejar.player;
+
+import com.sudicode.tunejar.song.Song;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Turns music directories into {@link Song Songs} using three stages linked by bounded queues:
+ * <ol>
+ * <li>A {@link DirectoryWalker}, which finds supported audio files in a deterministic order.</li>
+ * <li>A configurable number of parsers, which construct songs out of those files.</li>
+ * <li>A collector, which hands the songs to the caller in the order that the walker found them.</li>
+ * </ol>
+ * The number of files in flight is capped, so memory use does not grow with the size of the library. All threads
+ * come from the {@link Scheduler}: the walker runs on a task thread, and there is one parser per parse thread.
+ */
+public final class ScanPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScanPipeline.class);
+
+    /**
+     * Tells a parser that the walker is done.
+     */
+    private static final Item END_OF_INPUT = new Item(-1, null);
+
+    /**
+     * Tells the collector that a parser is done.
+     */
+    private static final Item END_OF_OUTPUT = new Item(-1, null);
+
+    private final Scheduler scheduler;
+    private final int walkers;
+    private final int workers;
+    private final int capacity;
+    private final Function<File, Song> parser;
+
+    private final AtomicLong walked = new AtomicLong();
+    private final AtomicLong parsed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param scheduler Provides the threads
+     * @param walkers   Maximum number of directories listed at once within each directory
+     * @param capacity  Capacity of each queue
+     * @param parser    Constructs a {@link Song} out of a file
+     */
+    public ScanPipeline(Scheduler scheduler, int walkers, int capacity, Function<File, Song> parser) {
+        this.scheduler = scheduler;
+        this.walkers = Math.max(1, walkers);
+        this.workers = scheduler.getParseThreads();
+        this.capacity = Math.max(1, capacity);
+        this.parser = parser;
+    }
+
+    /**
+     * Scans the directories. Blocks until every supported file has been parsed and collected.
+     *
+     * @param directories The directories to scan
+     * @param collector   Receives each song, on the calling thread, in a deterministic order
+     * @throws InterruptedException if the calling thread was interrupted while waiting
+     */
+    public void run(Collection<File> directories, Consumer<Song> collector) throws InterruptedException {
+        BlockingQueue<Item> files = new ArrayBlockingQueue<>(capacity);
+        BlockingQueue<Item> songs = new ArrayBlockingQueue<>(capacity);
+
+        // Files which have been walked but not collected. Bounds the reorder buffer below.
+        Semaphore window = new Semaphore(2 * capacity + workers);
+
+        List<Future<?>> stages = new ArrayList<>();
+        try {
+            stages.add(scheduler.tasks().submit(() -> walk(directories, files, window)));
+            for (int i = 0; i < workers; i++) {
+                stages.add(scheduler.parse().submit(() -> parse(files, songs)));
+            }
+            collect(songs, window, collector);
+        } finally {
+            // Only needed if the collector was interrupted; otherwise every stage has already finished.
+            stages.forEach(stage -> stage.cancel(true));
+        }
+    }
+
+    /**
+     * Walker stage.
+     */
+    private void walk(Collection<File> directories, BlockingQueue<Item> files, Semaphore window) {
+        try {
+            long[] seq = new long[1];
+            new DirectoryWalker(scheduler.walk(), walkers).walk(directories, file -> {
+                window.acquire();
+                walked.incrementAndGet();
+                files.put(new Item(seq[0]++, file));
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.error("Failed to walk directories.", e);
+        } finally {
+            try {
+                for (int i = 0; i < workers && !Thread.currentThread().isInterrupted(); i++) {
+                    files.put(END_OF_INPUT);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Parser stage. An {@link Error} stops this parser, but only after the file is reported as failed and the
+     * collector is told that this parser is done, so that the other parsers can finish the scan.
+     */
+    private void parse(BlockingQueue<Item> files, BlockingQueue<Item> songs) {
+        try {
+            for (Item item = files.take(); item != END_OF_INPUT; item = files.take()) {
+                Song song = null;
+                try {
+                    song = parser.apply(item.file);
+                    // Compute the keys while still in parallel, so that indexing and sorting the song never have to.
+                    song.getKeys();
+                } catch (RuntimeException e) {
+                    logger.error("Failed to parse: " + item.file, e);
+                } catch (Error e) {
+                    logger.error("Parser stopped while parsing: " + item.file, e);
+                    songs.put(new Item(item.seq, item.file, null));
+                    throw e;
+                }
+                songs.put(new Item(item.seq, item.file, song));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                if (!Thread.currentThread().isInterrupted()) {
+                    songs.put(END_OF_OUTPUT);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Collector stage. Runs on the calling thread, and restores the order of the walker.
+     */
+    private void collect(BlockingQueue<Item> songs, Semaphore window, Consumer<Song> collector)
+            throws InterruptedException {
+        Map<Long, Item> reorder = new HashMap<>();
+        long next = 0;
+        for (int done = 0; done < workers; ) {
+            Item item = songs.take();
+            if (item == END_OF_OUTPUT) {
+                done++;
+                continue;
+            }
+            reorder.put(item.seq, item);
+            for (Item ready; (ready = reorder.remove(next)) != null; next++) {
+                window.release();
+                if (ready.song != null) {
+                    parsed.incrementAndGet();
+                    collector.accept(ready.song);
+                } else {
+                    failed.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Number of supported files found so far.
+     */
+    public long getWalked() {
+        return walked.get();
+    }
+
+    /**
+     * @return Number of songs collected so far.
+     */
+    public long getParsed() {
+        return parsed.get();
+    }
+
+    /**
+     * @return Number of files which could not be parsed so far.
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * A file and, once parsed, its song. Tagged with the order in which the walker found it.
+     */
+    private static final class Item {
+        private final long seq;
+        private final File file;
+        private final Song song;
+
+        private Item(long seq, File file) {
+            this(seq, file, null);
+        }
+
+        private Item(long seq, File file, Song song) {
+            this.seq = seq;
+            this.file = file;
+            this.song = song;
+        }
+    }
+
+}
@@ -0,0 +1,158 @@
+package com.sudicode.tunejar.player;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Owns every thread pool used for background work, so that thread counts are bounded and every pool is shut down
+ * together. There is one {@link Scheduler} per {@link Player}; it is created when the player starts, and shut down
+ * when the player restarts or exits. The pools are:
+ * <ul>
+ * <li><b>tasks</b>: long running, mostly blocking jobs, such as refreshing the library, as well as filtering the song
+ * table.</li>
+ * <li><b>walk</b>: a {@link ForkJoinPool} for I/O bound directory listing.</li>
+ * <li><b>parse</b>: CPU bound tag parsing.</li>
+ * <li><b>ui</b>: a single thread which coalesces updates before they are handed to the JavaFX application thread, and
+ * writes buffered options in the background.</li>
+ * </ul>
+ * All threads are daemons, and idle threads of the fixed size pools time out, so an idle player holds few threads.
+ */
+public final class Scheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(Scheduler.class);
+
+    private static final long KEEP_ALIVE = 60;
+
+    private final ThreadPoolExecutor tasks;
+    private final ForkJoinPool walk;
+    private final ThreadPoolExecutor parse;
+    private final ScheduledThreadPoolExecutor ui;
+
+    /**
+     * Constructor.
+     *
+     * @param taskThreads  Maximum number of threads for long running jobs
+     * @param walkThreads  Parallelism of the directory listing pool
+     * @param parseThreads Maximum number of threads for tag parsing
+     */
+    public Scheduler(int taskThreads, int walkThreads, int parseThreads) {
+        tasks = newFixedPool("task", taskThreads);
+        parse = newFixedPool("parse", parseThreads);
+
+        AtomicInteger walkCount = new AtomicInteger();
+        walk = new ForkJoinPool(Math.max(1, walkThreads), pool -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            t.setName("walk-" + walkCount.getAndIncrement());
+            return t;
+        }, null, false);
+
+        ui = new ScheduledThreadPoolExecutor(1, newThreadFactory("ui"));
+        ui.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * @return Executor for long running, mostly blocking jobs.
+     */
+    public ExecutorService tasks() {
+        return tasks;
+    }
+
+    /**
+     * @return Fork/join pool for I/O bound directory listing.
+     */
+    public ForkJoinPool walk() {
+        return walk;
+    }
+
+    /**
+     * @return Executor for CPU bound tag parsing.
+     */
+    public ExecutorService parse() {
+        return parse;
+    }
+
+    /**
+     * @return Number of threads in the parse pool, which is the number of songs that can be parsed at once.
+     */
+    public int getParseThreads() {
+        return parse.getMaximumPoolSize();
+    }
+
+    /**
+     * @return Single threaded executor for coalescing updates to the user interface, and writing buffered options.
+     */
+    public ScheduledExecutorService ui() {
+        return ui;
+    }
+
+    /**
+     * @return Number of live threads across all pools.
+     */
+    public int getThreadCount() {
+        return tasks.getPoolSize() + walk.getPoolSize() + parse.getPoolSize() + ui.getPoolSize();
+    }
+
+    /**
+     * @return <code>true</code> if {@link #shutdown()} has been called.
+     */
+    public boolean isShutdown() {
+        return tasks.isShutdown();
+    }
+
+    /**
+     * Interrupts running jobs, discards queued jobs, and waits briefly for the threads to exit.
+     */
+    public void shutdown() {
+        tasks.shutdownNow();
+        walk.shutdownNow();
+        parse.shutdownNow();
+        ui.shutdownNow();
+        try {
+            if (!tasks.awaitTermination(1, TimeUnit.SECONDS) || !parse.awaitTermination(1, TimeUnit.SECONDS)) {
+                logger.warn("Background jobs did not stop in time: " + this);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("Scheduler shut down.");
+    }
+
+    /**
+     * @return The thread counts of each pool, in the form <code>pool=active/live</code>.
+     */
+    @Override
+    public String toString() {
+        return String.format("tasks=%d/%d, walk=%d/%d, parse=%d/%d, ui=%d/%d", tasks.getActiveCount(),
+                tasks.getPoolSize(), walk.getActiveThreadCount(), walk.getPoolSize(), parse.getActiveCount(),
+                parse.getPoolSize(), ui.getActiveCount(), ui.getPoolSize());
+    }
+
+    private static ThreadPoolExecutor newFixedPool(String name, int threads) {
+        int n = Math.max(1, threads);
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(n, n, KEEP_ALIVE, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), newThreadFactory(name));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static ThreadFactory newThreadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + count.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+}
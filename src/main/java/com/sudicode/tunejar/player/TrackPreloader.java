@@ -0,0 +1,132 @@
+package com.sudicode.tunejar.player;
+
+import com.sudicode.tunejar.song.Song;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Prepares a player for the song which is expected to play next, so that it is ready to start as soon as the current
+ * song ends. Players are created in the background, since opening the media blocks. At most one song is preloaded at
+ * a time: preloading another one disposes the previous player, and so does a player which arrives after its song was
+ * replaced. Must be used on the JavaFX application thread.
+ *
+ * @param <P> Type of the player
+ */
+final class TrackPreloader<P> {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrackPreloader.class);
+
+    private final Executor executor;
+    private final Executor fxThread;
+    private final Function<Song, P> loader;
+    private final Consumer<P> disposer;
+
+    private long generation;
+    private Song song;
+    private P player;
+
+    /**
+     * Constructor.
+     *
+     * @param executor Runs the loader
+     * @param fxThread Hands the player over, normally {@link javafx.application.Platform#runLater(Runnable)}
+     * @param loader   Creates a player for a song, in the background
+     * @param disposer Releases a player which will not be used
+     */
+    TrackPreloader(Executor executor, Executor fxThread, Function<Song, P> loader, Consumer<P> disposer) {
+        this.executor = executor;
+        this.fxThread = fxThread;
+        this.loader = loader;
+        this.disposer = disposer;
+    }
+
+    /**
+     * Starts preparing a player for a song, unless it is already preloaded or being preloaded.
+     *
+     * @param next The song which is expected to play next, or <code>null</code> to preload nothing
+     */
+    void preload(Song next) {
+        if (next == song) {
+            return;
+        }
+        clear();
+        if (next == null) {
+            return;
+        }
+        song = next;
+        long current = generation;
+        try {
+            executor.execute(() -> load(next, current));
+        } catch (RejectedExecutionException e) {
+            logger.debug("Preload dropped, the executor has shut down: " + next);
+        }
+    }
+
+    /**
+     * Takes the preloaded player, if it is for the given song. Whatever else is preloaded is disposed, since the song
+     * which was expected to play next did not.
+     *
+     * @param next The song which is about to play
+     * @return Its player, or <code>null</code> if it is not preloaded (yet)
+     */
+    P take(Song next) {
+        P taken = null;
+        if (next == song && player != null) {
+            taken = player;
+            player = null;
+        }
+        clear();
+        return taken;
+    }
+
+    /**
+     * Disposes the preloaded player, and drops the one being preloaded as soon as it arrives.
+     */
+    void clear() {
+        generation++;
+        song = null;
+        if (player != null) {
+            disposer.accept(player);
+            player = null;
+        }
+    }
+
+    /**
+     * @return The song which is preloaded or being preloaded, or <code>null</code> if none.
+     */
+    Song getSong() {
+        return song;
+    }
+
+    /**
+     * @return <code>true</code> if the player for {@link #getSong()} has been created.
+     */
+    boolean isLoaded() {
+        return player != null;
+    }
+
+    private void load(Song next, long current) {
+        P loaded;
+        try {
+            long begin = System.nanoTime();
+            loaded = loader.apply(next);
+            logger.debug("Preloaded {} in {}ms", next, (System.nanoTime() - begin) / 1000000);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to preload: " + next, e);
+            return;
+        }
+        fxThread.execute(() -> {
+            if (generation == current) {
+                player = loaded;
+            } else {
+                disposer.accept(loaded);
+            }
+        });
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.sudicode.tunejar.player;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies updates from background threads on the JavaFX application thread, at most once per frame. Each update is
+ * posted against a target, such as the status bar or the song table, and replaces the update still pending for the
+ * same target, so only the latest one is ever applied. However many updates are posted, at most one flush is queued
+ * on the JavaFX application thread, and flushes are at least a frame apart, so a busy background thread cannot flood
+ * the event queue.
+ * <p>
+ * Updates to the same target are applied in the order they were posted, even if some of them are posted from the
+ * JavaFX application thread itself. So once a target gets updates from here, it should get all of them from here.
+ */
+public final class UiDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(UiDispatcher.class);
+
+    private final ScheduledExecutorService executor;
+    private final Executor fxThread;
+    private final long frameNanos;
+
+    // Guarded by this
+    private final Map<Object, Runnable> pending = new LinkedHashMap<>();
+    private boolean scheduled;
+    private long lastFlush;
+
+    /**
+     * Constructor.
+     *
+     * @param executor Delays a flush until a frame has passed since the last one
+     * @param fxThread Runs each flush, normally {@link javafx.application.Platform#runLater(Runnable)}
+     * @param frame    Minimum time (in milliseconds) between two flushes
+     */
+    public UiDispatcher(ScheduledExecutorService executor, Executor fxThread, long frame) {
+        this.executor = executor;
+        this.fxThread = fxThread;
+        this.frameNanos = TimeUnit.MILLISECONDS.toNanos(frame);
+        this.lastFlush = System.nanoTime() - frameNanos;
+    }
+
+    /**
+     * Posts an update, which replaces the one still pending for the same target, if any.
+     *
+     * @param target The target of the update, compared by equality
+     * @param update Applies the update on the JavaFX application thread
+     */
+    public synchronized void post(Object target, Runnable update) {
+        pending.put(target, update);
+        if (scheduled) {
+            return;
+        }
+        scheduled = true;
+        long wait = lastFlush + frameNanos - System.nanoTime();
+        try {
+            if (wait <= 0) {
+                fxThread.execute(this::flush);
+            } else {
+                executor.schedule(() -> fxThread.execute(this::flush), wait, TimeUnit.NANOSECONDS);
+            }
+        } catch (RejectedExecutionException e) {
+            logger.debug("Update dropped, the executor has shut down: " + target);
+            pending.clear();
+            scheduled = false;
+        }
+    }
+
+    /**
+     * @return Number of targets with an update which has yet to be applied.
+     */
+    public synchronized int getPending() {
+        return pending.size();
+    }
+
+    private void flush() {
+        List<Runnable> updates;
+        synchronized (this) {
+            updates = new ArrayList<>(pending.values());
+            pending.clear();
+            scheduled = false;
+            lastFlush = System.nanoTime();
+        }
+        for (Runnable update : updates) {
+            try {
+                update.run();
+            } catch (RuntimeException e) {
+                logger.error("Failed to update the user interface", e);
+            }
+        }
+    }
+
+}
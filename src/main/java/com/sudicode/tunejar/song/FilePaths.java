@@ -0,0 +1,41 @@
+package com.sudicode.tunejar.song;
+
+import java.io.File;
+import java.util.Set;
+
+/**
+ * Helpers for sets of absolute file paths.
+ */
+public final class FilePaths {
+
+    /**
+     * Illegal.
+     */
+    private FilePaths() {
+    }
+
+    /**
+     * Tells whether a path is one of several paths, or inside of one of them. Only the path and its parents are looked
+     * up, so this takes time proportional to the depth of the path rather than to the number of paths.
+     *
+     * @param path  An absolute path
+     * @param paths Absolute paths of files or directories
+     * @return <code>true</code> if the path is, or is inside of, one of the paths
+     */
+    public static boolean isWithin(String path, Set<String> paths) {
+        if (paths.isEmpty()) {
+            return false;
+        }
+        for (String p = path; ; ) {
+            if (paths.contains(p)) {
+                return true;
+            }
+            int separator = p.lastIndexOf(File.separatorChar);
+            if (separator <= 0) {
+                return false;
+            }
+            p = p.substring(0, separator);
+        }
+    }
+
+}
@@ -0,0 +1,118 @@
+package com.sudicode.tunejar.song;
+
+import java.util.Arrays;
+
+/**
+ * Finds how closely a pattern occurs anywhere in a text: the smallest number of characters which must be inserted,
+ * deleted, substituted or swapped with their neighbour to turn the pattern into some substring of the text. Uses
+ * Myers' bit-parallel algorithm, with Hyyr\u00f6's extension for swapped characters, which keeps a whole column of
+ * the edit distance matrix in one <code>long</code>, so each text character costs a handful of bitwise operations.
+ * Patterns longer than {@value #MAX_LENGTH} characters are truncated.
+ */
+final class FuzzyMatcher {
+
+    static final int MAX_LENGTH = Long.SIZE;
+
+    private final int length;
+    private final long last;
+
+    /**
+     * Bit <code>i</code> of <code>ascii[c]</code> is set if character <code>i</code> of the pattern is
+     * <code>c</code>. Other characters of the pattern are listed in {@link #others} and {@link #otherMasks}.
+     */
+    private final long[] ascii = new long[128];
+    private char[] others = new char[0];
+    private long[] otherMasks = new long[0];
+
+    /**
+     * Constructor.
+     *
+     * @param pattern The pattern, which must not be empty
+     */
+    FuzzyMatcher(String pattern) {
+        length = Math.min(pattern.length(), MAX_LENGTH);
+        last = 1L << (length - 1);
+        for (int i = 0; i < length; i++) {
+            char c = pattern.charAt(i);
+            if (c < ascii.length) {
+                ascii[c] |= 1L << i;
+                continue;
+            }
+            int j = indexOf(c);
+            if (j < 0) {
+                j = others.length;
+                others = Arrays.copyOf(others, j + 1);
+                otherMasks = Arrays.copyOf(otherMasks, j + 1);
+                others[j] = c;
+            }
+            otherMasks[j] |= 1L << i;
+        }
+    }
+
+    /**
+     * @return Length of the pattern, after truncation.
+     */
+    int length() {
+        return length;
+    }
+
+    /**
+     * Computes the edit distance between the pattern and its closest occurrence in a text.
+     *
+     * @param text  The text
+     * @param bound Largest distance of interest
+     * @return The distance, or <code>bound + 1</code> if it is larger than <code>bound</code>
+     */
+    int distance(String text, int bound) {
+        // Distances which are too large can be rejected without looking at the text.
+        if (length - text.length() > bound) {
+            return bound + 1;
+        }
+
+        long vp = -1L;
+        long vn = 0L;
+        long pmPrev = 0L;
+        long d0 = 0L;
+        int score = length;
+        int best = score;
+        for (int i = 0; i < text.length() && best > 0; i++) {
+            long pm = mask(text.charAt(i));
+            // Diagonal zeros: a match, a transposition of this character and the previous one, or carried over.
+            long tr = ((~d0 & pm) << 1) & pmPrev;
+            d0 = (((pm & vp) + vp) ^ vp) | pm | vn | tr;
+            long hp = vn | ~(d0 | vp);
+            long hn = vp & d0;
+            if ((hp & last) != 0) {
+                score++;
+            } else if ((hn & last) != 0) {
+                score--;
+            }
+            // The pattern may start anywhere in the text, so the top row of the matrix stays at zero.
+            hp <<= 1;
+            hn <<= 1;
+            vp = hn | ~(d0 | hp);
+            vn = d0 & hp;
+            pmPrev = pm;
+            best = Math.min(best, score);
+        }
+        return Math.min(best, bound + 1);
+    }
+
+    private long mask(char c) {
+        if (c < ascii.length) {
+            return ascii[c];
+        }
+        int j = indexOf(c);
+        return j < 0 ? 0L : otherMasks[j];
+    }
+
+    private int indexOf(char c) {
+        for (int j = 0; j < others.length; j++) {
+            if (others[j] == c) {
+                return j;
+            }
+        }
+        return -1;
+    }
+
+}
@@ -33,6 +33,15 @@ public final class Mp3Song extends Song {
     Mp3Song(final File mp3File) {
         audioFile = mp3File;
 
+        // Try the lightweight reader first
+        TagReader.Tags tags = TagReader.readMp3(audioFile);
+        if (tags != null) {
+            title.set(tags.title);
+            artist.set(tags.artist);
+            album.set(tags.album);
+            return;
+        }
+
         try {
             MP3File f = (MP3File) AudioFileIO.read(audioFile);
 
@@ -54,6 +63,21 @@ public final class Mp3Song extends Song {
         }
     }
 
+    /**
+     * Constructor. Uses previously read metadata instead of parsing the file.
+     *
+     * @param mp3File The MP3 (.mp3) file to use.
+     * @param title   The title
+     * @param artist  The artist
+     * @param album   The album
+     */
+    Mp3Song(final File mp3File, final String title, final String artist, final String album) {
+        audioFile = mp3File;
+        this.title.set(title);
+        this.artist.set(artist);
+        this.album.set(album);
+    }
+
     /**
      * Constructor.
      *
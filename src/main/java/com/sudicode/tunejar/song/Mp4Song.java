@@ -33,6 +33,15 @@ public final class Mp4Song extends Song {
     Mp4Song(final File mp4File) {
         audioFile = mp4File;
 
+        // Try the lightweight reader first
+        TagReader.Tags tags = TagReader.readMp4(audioFile);
+        if (tags != null) {
+            title.set(tags.title);
+            artist.set(tags.artist);
+            album.set(tags.album);
+            return;
+        }
+
         try {
             AudioFile f = AudioFileIO.read(audioFile);
 
@@ -47,6 +56,21 @@ public final class Mp4Song extends Song {
         }
     }
 
+    /**
+     * Constructor. Uses previously read metadata instead of parsing the file.
+     *
+     * @param mp4File The MP4 (.mp4/.m4a) file to use.
+     * @param title   The title
+     * @param artist  The artist
+     * @param album   The album
+     */
+    Mp4Song(final File mp4File, final String title, final String artist, final String album) {
+        audioFile = mp4File;
+        this.title.set(title);
+        this.artist.set(artist);
+        this.album.set(album);
+    }
+
     /**
      * Constructor.
      *
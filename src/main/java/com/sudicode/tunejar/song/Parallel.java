@@ -0,0 +1,91 @@
+package com.sudicode.tunejar.song;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * Runs a CPU bound loop over the songs in contiguous chunks on a given executor, rather than on the common fork/join
+ * pool, so that it stays within the bounded pools of the application. The calling thread takes chunks as well, and
+ * nobody waits for a chunk which has not started: should the executor be busy, the calling thread simply runs every
+ * chunk itself.
+ */
+final class Parallel {
+
+    private Parallel() {
+    }
+
+    /**
+     * Applies a task to each chunk of a list.
+     *
+     * @param items       The list
+     * @param executor    Runs the helpers
+     * @param parallelism Largest number of chunks
+     * @param task        Applied to each chunk, possibly at the same time as to others
+     * @param <T>         Type of the items
+     * @param <R>         Type of the results
+     * @return The result for each chunk, in the order of the chunks
+     */
+    static <T, R> List<R> map(List<T> items, Executor executor, int parallelism, Function<List<T>, R> task) {
+        int most = Math.max(1, parallelism);
+        int size = Math.max(1, (items.size() + most - 1) / most);
+        int chunks = Math.max(1, (items.size() + size - 1) / size);
+        AtomicReferenceArray<R> results = new AtomicReferenceArray<>(chunks);
+        AtomicInteger next = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(chunks);
+        Runnable worker = () -> {
+            for (int i; (i = next.getAndIncrement()) < chunks; ) {
+                try {
+                    results.set(i, task.apply(items.subList(i * size, Math.min((i + 1) * size, items.size()))));
+                } catch (RuntimeException | Error e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            }
+        };
+
+        for (int i = 1; i < chunks; i++) {
+            try {
+                executor.execute(worker);
+            } catch (RejectedExecutionException e) {
+                break;
+            }
+        }
+        worker.run();
+
+        // Every chunk has been taken, so this only waits for the chunks which are still running.
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        Throwable t = failure.get();
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t != null) {
+            throw (Error) t;
+        }
+        List<R> list = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            list.add(results.get(i));
+        }
+        return list;
+    }
+
+}
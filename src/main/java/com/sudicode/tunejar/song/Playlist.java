@@ -1,6 +1,7 @@
 package com.sudicode.tunejar.song;
 
 import com.sudicode.tunejar.config.Options;
+import javafx.beans.property.ReadOnlyStringProperty;
 import javafx.beans.property.SimpleStringProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -8,7 +9,6 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListIterator;
 
@@ -51,37 +51,44 @@ public final class Playlist implements List<Song> {
         return name.get();
     }
 
+    /**
+     * @return The name of the playlist, as an observable value
+     */
+    public ReadOnlyStringProperty nameProperty() {
+        return name;
+    }
+
     // --------------- Saving --------------- //
 
     /**
      * Save the playlist.
      *
      * @param options The {@link Options} object to save to
+     * @throws java.io.UncheckedIOException if the playlist cannot be written
      */
     public void save(final Options options) {
-        LinkedHashMap<String, String> playlists = options.getPlaylists();
-        StringBuilder sb = new StringBuilder();
+        List<String> paths = new ArrayList<>(size());
         for (Song song : this) {
-            sb.append(song.getAbsoluteFilename()).append(System.lineSeparator());
+            paths.add(song.getAbsoluteFilename());
         }
-        playlists.put(getName(), sb.toString());
-        options.setPlaylists(playlists);
+        options.savePlaylist(getName(), paths);
         logger.info("Successfully saved playlist: " + name.get());
     }
 
     // --------------- Method Overriding --------------- //
 
     /**
-     * Uses the copy constructor instead of directly adding the argument.
+     * Adds a reference to the song, rather than a copy. Songs are shared between playlists (see
+     * {@link SongRegistry}), so this never touches the disk.
      */
     @Override
     public boolean add(final Song s) {
-        return list.add(SongFactory.duplicate(s));
+        return list.add(s);
     }
 
     /**
-     * Adds the contents of the song collection to this playlist. Uses the copy
-     * constructor instead of directly adding items from the collection.
+     * Adds the contents of the song collection to this playlist. Like {@link #add(Song)}, the songs themselves are
+     * shared rather than copied.
      *
      * @param songs A song collection
      * @return True if at least one song in the collection was added to this
@@ -89,13 +96,7 @@ public final class Playlist implements List<Song> {
      */
     @Override
     public boolean addAll(final Collection<? extends Song> songs) {
-        boolean added = false;
-        for (Song s : songs) {
-            if (add(s)) {
-                added = true;
-            }
-        }
-        return added;
+        return list.addAll(songs);
     }
 
     // --------------- Delegation --------------- //
@@ -142,7 +143,7 @@ public final class Playlist implements List<Song> {
 
     @Override
     public boolean addAll(int index, Collection<? extends Song> c) {
-        return list.addAll(c);
+        return list.addAll(index, c);
     }
 
     @Override
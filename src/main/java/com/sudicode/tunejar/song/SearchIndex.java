@@ -0,0 +1,432 @@
+package com.sudicode.tunejar.song;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Inverted trigram index over the title, artist and album of a set of songs, for substring search which ignores case
+ * and accents. Each song gets a number, and each trigram (three consecutive characters) of its fields maps to the
+ * sorted list of numbers of the songs which contain it. A query is answered by intersecting the lists of its trigrams,
+ * then checking the few remaining candidates, instead of scanning every song. Queries shorter than a trigram fall back
+ * to a scan of the normalized fields. The same trigrams narrow down the candidates for {@link #rank(String, int,
+ * Predicate) fuzzy search}.
+ * <p>
+ * Removed songs are only marked as such, and the index is rebuilt once they outnumber the live ones. Songs which are
+ * edited must be re-indexed through {@link #update(Song)}. All methods are thread safe.
+ */
+public final class SearchIndex {
+
+    /**
+     * Fields which are searched, in order of priority.
+     */
+    public enum Field {
+        TITLE(3), ARTIST(2), ALBUM(1);
+
+        private final int weight;
+
+        Field(int weight) {
+            this.weight = weight;
+        }
+
+        /**
+         * @return How much a match in this field counts towards the rank of a song.
+         */
+        public int getWeight() {
+            return weight;
+        }
+    }
+
+    private static final Field[] FIELDS = Field.values();
+    private static final int GRAM = 3;
+    private static final int MIN_REBUILD = 1024;
+
+    /**
+     * Songs by number. Removed songs leave a <code>null</code> behind.
+     */
+    private List<Song> songs = new ArrayList<>();
+
+    /**
+     * Keys of each song when it was indexed, by number.
+     */
+    private List<SongKeys> keys = new ArrayList<>();
+
+    private Map<Song, Integer> numbers = new IdentityHashMap<>();
+    private PostingsTable postings = new PostingsTable();
+    private int removed;
+
+    /**
+     * Indexes a song. Does nothing if the song is already indexed.
+     *
+     * @param song The song
+     */
+    public synchronized void add(Song song) {
+        if (numbers.containsKey(song)) {
+            return;
+        }
+        int number = songs.size();
+        SongKeys songKeys = song.getKeys();
+        songs.add(song);
+        keys.add(songKeys);
+        numbers.put(song, number);
+
+        for (Field f : FIELDS) {
+            String field = songKeys.get(f);
+            for (int i = 0; i + GRAM <= field.length(); i++) {
+                postings.getOrCreate(gram(field, i)).add(number);
+            }
+        }
+    }
+
+    /**
+     * Removes a song from the index. Does nothing if the song is not indexed.
+     *
+     * @param song The song
+     */
+    public synchronized void remove(Song song) {
+        Integer number = numbers.remove(song);
+        if (number == null) {
+            return;
+        }
+        songs.set(number, null);
+        keys.set(number, null);
+        removed++;
+        if (removed > MIN_REBUILD && removed > numbers.size()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Re-indexes a song whose fields have changed.
+     *
+     * @param song The song
+     */
+    public synchronized void update(Song song) {
+        if (numbers.containsKey(song)) {
+            remove(song);
+            add(song);
+        }
+    }
+
+    /**
+     * Replaces one song with another, such as a newer version of the same file.
+     *
+     * @param oldSong The song to remove, or <code>null</code>
+     * @param newSong The song to add
+     */
+    public synchronized void replace(Song oldSong, Song newSong) {
+        if (oldSong != newSong) {
+            if (oldSong != null) {
+                remove(oldSong);
+            }
+            add(newSong);
+        }
+    }
+
+    /**
+     * @return Number of indexed songs.
+     */
+    public synchronized int size() {
+        return numbers.size();
+    }
+
+    /**
+     * Finds every song whose title, artist or album contains a keyword, ignoring case and accents.
+     *
+     * @param keyword The keyword
+     * @return Each matching song, mapped to the first field (in order of priority) which contains the keyword, in the
+     * order in which the songs were indexed
+     */
+    public synchronized Map<Song, Field> search(String keyword) {
+        String query = SongKeys.normalize(keyword);
+        Map<Song, Field> matches = new IdentityHashMap<>();
+        if (query.isEmpty()) {
+            return matches;
+        }
+
+        if (query.length() < GRAM) {
+            for (int number = 0; number < songs.size(); number++) {
+                match(number, query, matches);
+            }
+            return matches;
+        }
+
+        // Intersect the posting lists, shortest first, so that the candidate set shrinks as fast as possible.
+        List<Postings> lists = new ArrayList<>();
+        for (int i = 0; i + GRAM <= query.length(); i++) {
+            Postings list = postings.get(gram(query, i));
+            if (list == null) {
+                return matches;
+            }
+            if (!lists.contains(list)) {
+                lists.add(list);
+            }
+        }
+        lists.sort(Comparator.comparingInt(list -> list.size));
+
+        int[] candidates = Arrays.copyOf(lists.get(0).numbers, lists.get(0).size);
+        int count = candidates.length;
+        for (int i = 1; i < lists.size() && count > 0; i++) {
+            count = lists.get(i).retain(candidates, count);
+        }
+
+        // A song can contain every trigram without containing the keyword, so check each candidate.
+        for (int i = 0; i < count; i++) {
+            match(candidates[i], query, matches);
+        }
+        return matches;
+    }
+
+    /**
+     * Finds the songs whose title, artist or album best match a keyword, tolerating typos: "beetles" finds "The
+     * Beatles", and "yesterdya" finds "Yesterday". Keywords of seven characters or more may be off by one character,
+     * and keywords of eleven characters or more by two. Candidates are the songs which share enough trigrams with the
+     * keyword to be within that distance, so most songs are never looked at. Each candidate is scored by its best
+     * field, as the weight of the field, scaled down by the number of typos, and only the best ones are kept, in a
+     * bounded heap.
+     *
+     * @param keyword The keyword
+     * @param limit   Largest number of songs to return
+     * @param filter  Songs which may be returned
+     * @return The best matching songs, best first. Songs with the same score are in the order in which they were
+     * indexed.
+     */
+    public synchronized List<Song> rank(String keyword, int limit, Predicate<Song> filter) {
+        String query = SongKeys.normalize(keyword);
+        if (query.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        FuzzyMatcher matcher = new FuzzyMatcher(query);
+        int length = matcher.length();
+        int bound = length < 7 ? 0 : length < 11 ? 1 : 2;
+
+        // Each typo spoils at most four distinct trigrams (swapping two characters spoils every trigram which contains
+        // either of them), so a song needs the remaining ones to be a candidate. Hits are counted per distinct
+        // trigram, since a trigram which occurs twice in the keyword ("lalala") has a single posting list. Keywords
+        // which are too short to have a trigram are matched against every song.
+        Set<Long> grams = new HashSet<>();
+        List<Postings> lists = new ArrayList<>();
+        for (int i = 0; i + GRAM <= length; i++) {
+            long gram = gram(query, i);
+            Postings list = postings.get(gram);
+            if (grams.add(gram) && list != null) {
+                lists.add(list);
+            }
+        }
+        int threshold = grams.size() - (GRAM + 1) * bound;
+        int[] hits = null;
+        if (threshold > 0) {
+            hits = new int[songs.size()];
+            for (Postings list : lists) {
+                for (int i = 0; i < list.size; i++) {
+                    hits[list.numbers[i]]++;
+                }
+            }
+        }
+
+        // Keep the best songs seen so far, with the worst of them at the head of the heap. Once the heap is full, a
+        // field which cannot beat the worst of them is not worth matching, since later songs lose ties.
+        PriorityQueue<Hit> best = new PriorityQueue<>(Math.min(limit, songs.size()) + 1);
+        double floor = 0;
+        for (int number = 0; number < songs.size() && floor < Field.TITLE.getWeight(); number++) {
+            if (hits != null && hits[number] < threshold) {
+                continue;
+            }
+            SongKeys songKeys = keys.get(number);
+            if (songKeys == null) {
+                continue;
+            }
+            double score = floor;
+            for (Field field : FIELDS) {
+                if (field.getWeight() <= score) {
+                    break;
+                }
+                int distance = matcher.distance(songKeys.get(field), bound);
+                if (distance <= bound) {
+                    score = Math.max(score, field.getWeight() * (double) (length - distance) / length);
+                }
+            }
+            if (score <= floor || !filter.test(songs.get(number))) {
+                continue;
+            }
+            best.add(new Hit(number, score));
+            if (best.size() > limit) {
+                best.poll();
+            }
+            if (best.size() == limit) {
+                floor = best.peek().score;
+            }
+        }
+
+        Song[] ranked = new Song[best.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            ranked[i] = songs.get(best.poll().number);
+        }
+        return new ArrayList<>(Arrays.asList(ranked));
+    }
+
+    private void match(int number, String query, Map<Song, Field> matches) {
+        SongKeys songKeys = keys.get(number);
+        if (songKeys == null) {
+            return;
+        }
+        for (Field field : FIELDS) {
+            if (songKeys.get(field).contains(query)) {
+                matches.put(songs.get(number), field);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Renumbers the live songs, dropping the removed ones from every posting list.
+     */
+    private void rebuild() {
+        List<Song> live = new ArrayList<>(numbers.size());
+        songs.stream().filter(s -> s != null).forEach(live::add);
+        songs = new ArrayList<>(live.size());
+        keys = new ArrayList<>(live.size());
+        numbers = new IdentityHashMap<>();
+        postings = new PostingsTable();
+        removed = 0;
+        live.forEach(this::add);
+    }
+
+    private static long gram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    /**
+     * Song which was ranked by {@link #rank(String, int, Predicate)}. Orders worst first, and songs with the same score
+     * last indexed first, so that the head of a heap is the first song to drop.
+     */
+    private static final class Hit implements Comparable<Hit> {
+
+        private final int number;
+        private final double score;
+
+        Hit(int number, double score) {
+            this.number = number;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(Hit other) {
+            int c = Double.compare(score, other.score);
+            return c != 0 ? c : Integer.compare(other.number, number);
+        }
+
+    }
+
+    /**
+     * Sorted list of song numbers.
+     */
+    private static final class Postings {
+
+        private int[] numbers = new int[2];
+        private int size;
+
+        /**
+         * Appends a number, which must not be smaller than any number in the list. Adding the last number again does
+         * nothing, so a song which contains the same trigram several times is only listed once.
+         */
+        void add(int number) {
+            if (size > 0 && numbers[size - 1] == number) {
+                return;
+            }
+            if (size == numbers.length) {
+                numbers = Arrays.copyOf(numbers, size * 2);
+            }
+            numbers[size++] = number;
+        }
+
+        /**
+         * Keeps only the candidates which are also in this list.
+         *
+         * @param candidates Sorted candidates, which are overwritten
+         * @param count      Number of candidates
+         * @return Number of remaining candidates
+         */
+        int retain(int[] candidates, int count) {
+            int kept = 0;
+            int from = 0;
+            for (int i = 0; i < count && from < size; i++) {
+                int found = Arrays.binarySearch(numbers, from, size, candidates[i]);
+                if (found >= 0) {
+                    candidates[kept++] = candidates[i];
+                    from = found + 1;
+                } else {
+                    from = -found - 1;
+                }
+            }
+            return kept;
+        }
+
+    }
+
+    /**
+     * Open addressing hash table from trigrams to their posting lists, which avoids boxing every trigram.
+     */
+    private static final class PostingsTable {
+
+        private long[] grams = new long[1024];
+        private Postings[] lists = new Postings[1024];
+        private int size;
+
+        Postings get(long gram) {
+            for (int i = slot(gram, grams.length); lists[i] != null; i = (i + 1) & (grams.length - 1)) {
+                if (grams[i] == gram) {
+                    return lists[i];
+                }
+            }
+            return null;
+        }
+
+        Postings getOrCreate(long gram) {
+            int i = slot(gram, grams.length);
+            for (; lists[i] != null; i = (i + 1) & (grams.length - 1)) {
+                if (grams[i] == gram) {
+                    return lists[i];
+                }
+            }
+            Postings list = new Postings();
+            grams[i] = gram;
+            lists[i] = list;
+            if (++size * 2 > grams.length) {
+                grow();
+            }
+            return list;
+        }
+
+        private void grow() {
+            long[] oldGrams = grams;
+            Postings[] oldLists = lists;
+            grams = new long[oldGrams.length * 2];
+            lists = new Postings[oldLists.length * 2];
+            for (int j = 0; j < oldLists.length; j++) {
+                if (oldLists[j] != null) {
+                    int i = slot(oldGrams[j], grams.length);
+                    while (lists[i] != null) {
+                        i = (i + 1) & (grams.length - 1);
+                    }
+                    grams[i] = oldGrams[j];
+                    lists[i] = oldLists[j];
+                }
+            }
+        }
+
+        private static int slot(long gram, int capacity) {
+            long h = gram * 0x9E3779B97F4A7C15L;
+            return (int) (h >>> 40) & (capacity - 1);
+        }
+
+    }
+
+}
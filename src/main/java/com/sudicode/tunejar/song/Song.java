@@ -1,7 +1,10 @@
 package com.sudicode.tunejar.song;
 
 import com.sudicode.tunejar.TuneJarException;
+import javafx.beans.binding.Bindings;
+import javafx.beans.property.ReadOnlyStringProperty;
 import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.value.ObservableStringValue;
 import org.jaudiotagger.audio.AudioFile;
 import org.jaudiotagger.audio.AudioFileIO;
 import org.jaudiotagger.audio.exceptions.CannotReadException;
@@ -30,6 +33,9 @@ public abstract class Song {
     protected SimpleStringProperty artist;
     protected SimpleStringProperty album;
 
+    private volatile SongKeys keys;
+    private ObservableStringValue displayTitle;
+
     // Redirect JAudioTagger's JUL to TuneJar's SLF4J
     static {
         SLF4JBridgeHandler.removeHandlersForRootLogger();
@@ -108,12 +114,26 @@ public abstract class Song {
      */
     public String getTitle() {
         if ("".equals(title.get())) {
-            return new SimpleStringProperty(getAudioFile().getName()).get();
+            return getAudioFile().getName();
         } else {
             return title.get();
         }
     }
 
+    /**
+     * Finds the title as it is displayed, which falls back to the file name, as an observable value. The song table
+     * binds its cells to it, so that an edit repaints only the cell which shows it. The value is created the first
+     * time it is needed, since most songs are never displayed.
+     *
+     * @return The title of the song, as an observable value.
+     */
+    public ObservableStringValue titleProperty() {
+        if (displayTitle == null) {
+            displayTitle = Bindings.createStringBinding(this::getTitle, title);
+        }
+        return displayTitle;
+    }
+
     /**
      * Sets the artist in both this object and the audio file.
      *
@@ -140,6 +160,13 @@ public abstract class Song {
         return artist.get();
     }
 
+    /**
+     * @return The artist of the song, as an observable value.
+     */
+    public ReadOnlyStringProperty artistProperty() {
+        return artist;
+    }
+
     /**
      * Sets the album in both this object and the audio file.
      *
@@ -166,6 +193,31 @@ public abstract class Song {
         return album.get();
     }
 
+    /**
+     * @return The album of the song, as an observable value.
+     */
+    public ReadOnlyStringProperty albumProperty() {
+        return album;
+    }
+
+    /**
+     * Finds the normalized search keys and the collation keys of the song. They are computed once, the first time
+     * they are needed after the song is parsed or edited, and shared until the next edit.
+     *
+     * @return The keys of the song.
+     */
+    public SongKeys getKeys() {
+        String t = title.get();
+        String ar = artist.get();
+        String al = album.get();
+        SongKeys k = keys;
+        if (k == null || !k.isFor(t, ar, al)) {
+            k = new SongKeys(t, ar, al, getTitle(), getAbsoluteFilename());
+            keys = k;
+        }
+        return k;
+    }
+
     /**
      * A string representation of the song object.
      *
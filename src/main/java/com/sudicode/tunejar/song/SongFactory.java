@@ -19,6 +19,17 @@ public class SongFactory {
     private SongFactory() {
     }
 
+    /**
+     * Checks whether a {@link Song} can be constructed out of a file, based on its name alone.
+     *
+     * @param filename The name of the file
+     * @return <code>true</code> if the file type is supported
+     */
+    public static boolean isSupported(final String filename) {
+        return filename.endsWith(".mp3") || filename.endsWith(".mp4") || filename.endsWith(".m4a")
+                || filename.endsWith(".wav");
+    }
+
     /**
      * Constructs a {@link Song} out of a file.
      *
@@ -41,6 +52,28 @@ public class SongFactory {
         throw new IllegalArgumentException("Unsupported file type: " + FilenameUtils.getExtension(file.getName()));
     }
 
+    /**
+     * Constructs a {@link Song} out of a file, using previously read metadata instead of parsing the file.
+     *
+     * @param file   The file to be used.
+     * @param title  The title
+     * @param artist The artist
+     * @param album  The album
+     * @return The constructed {@link Song}
+     * @throws IllegalArgumentException if the file type is not supported
+     */
+    public static Song create(final File file, final String title, final String artist, final String album) {
+        if (file.getName().endsWith(".mp3")) {
+            return new Mp3Song(file, title, artist, album);
+        } else if (file.getName().endsWith(".mp4") || file.getName().endsWith(".m4a")) {
+            return new Mp4Song(file, title, artist, album);
+        } else if (file.getName().endsWith(".wav")) {
+            return new WavSong(file);
+        }
+
+        throw new IllegalArgumentException("Unsupported file type: " + FilenameUtils.getExtension(file.getName()));
+    }
+
     /**
      * Duplicates a {@link Song} by using its copy constructor.
      *
@@ -0,0 +1,164 @@
+package com.sudicode.tunejar.song;
+
+import org.apache.commons.io.FilenameUtils;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.text.Normalizer;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Precomputed keys for the title, artist and album of a song: normalized text (case folded, without accents) for
+ * searching, and a {@link CollationKey} for sorting in the order of the user's locale. The path and the format (file
+ * extension) of the song are normalized for searching as well. Keys are immutable, and computed once per version of
+ * the tags, so that neither searching nor sorting allocates anything per song.
+ *
+ * @see Song#getKeys()
+ */
+public final class SongKeys {
+
+    /**
+     * Compares songs by the collation key of their title.
+     */
+    public static final Comparator<Song> BY_TITLE = Comparator.comparing(s -> s.getKeys().titleKey);
+
+    /**
+     * Compares songs by the collation key of their artist.
+     */
+    public static final Comparator<Song> BY_ARTIST = Comparator.comparing(s -> s.getKeys().artistKey);
+
+    /**
+     * Compares songs by the collation key of their album.
+     */
+    public static final Comparator<Song> BY_ALBUM = Comparator.comparing(s -> s.getKeys().albumKey);
+
+    /**
+     * Collators are not thread safe, and computing keys is slow enough to be worth doing in parallel, so each thread
+     * has its own. Collators for the same locale produce keys which compare alike.
+     */
+    private static final ThreadLocal<Collator> COLLATOR = ThreadLocal.withInitial(() -> {
+        Collator collator = Collator.getInstance();
+        collator.setDecomposition(Collator.CANONICAL_DECOMPOSITION);
+        return collator;
+    });
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    // The tags which the keys were computed from, compared by identity to detect edits.
+    private final String rawTitle;
+    private final String rawArtist;
+    private final String rawAlbum;
+
+    private final String title;
+    private final String artist;
+    private final String album;
+    private final String path;
+    private final String format;
+    private final CollationKey titleKey;
+    private final CollationKey artistKey;
+    private final CollationKey albumKey;
+
+    /**
+     * Constructor.
+     *
+     * @param rawTitle  The title tag
+     * @param rawArtist The artist tag
+     * @param rawAlbum  The album tag
+     * @param title     The title which is displayed, which falls back to the file name
+     * @param path      The absolute path of the file
+     */
+    SongKeys(String rawTitle, String rawArtist, String rawAlbum, String title, String path) {
+        this.rawTitle = rawTitle;
+        this.rawArtist = rawArtist;
+        this.rawAlbum = rawAlbum;
+        this.title = normalize(title);
+        this.artist = normalize(rawArtist);
+        this.album = normalize(rawAlbum);
+        this.path = normalize(path);
+        this.format = normalize(FilenameUtils.getExtension(path));
+        Collator collator = COLLATOR.get();
+        this.titleKey = collator.getCollationKey(title == null ? "" : title);
+        this.artistKey = collator.getCollationKey(rawArtist == null ? "" : rawArtist);
+        this.albumKey = collator.getCollationKey(rawAlbum == null ? "" : rawAlbum);
+    }
+
+    /**
+     * Normalizes text for searching: strips accents and other combining marks, and converts it to lower case, so
+     * that "Caf&eacute;" and "CAFE" have the same key.
+     *
+     * @param s The text
+     * @return The normalized text, or an empty string if <code>s</code> is <code>null</code>
+     */
+    public static String normalize(String s) {
+        if (s == null) {
+            return "";
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 0x80) {
+                String stripped = MARKS.matcher(Normalizer.normalize(s, Normalizer.Form.NFD)).replaceAll("");
+                return Normalizer.normalize(stripped, Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+            }
+        }
+        return s.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return <code>true</code> if these keys were computed from the given tags.
+     */
+    boolean isFor(String title, String artist, String album) {
+        return rawTitle == title && rawArtist == artist && rawAlbum == album;
+    }
+
+    /**
+     * @return The normalized title.
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return The normalized artist.
+     */
+    public String getArtist() {
+        return artist;
+    }
+
+    /**
+     * @return The normalized album.
+     */
+    public String getAlbum() {
+        return album;
+    }
+
+    /**
+     * @return The normalized absolute path.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return The normalized file extension, without the dot.
+     */
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * @param field The field
+     * @return The normalized text of the field.
+     */
+    public String get(SearchIndex.Field field) {
+        switch (field) {
+            case TITLE:
+                return title;
+            case ARTIST:
+                return artist;
+            default:
+                return album;
+        }
+    }
+
+}
@@ -0,0 +1,426 @@
+package com.sudicode.tunejar.song;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Query over songs, such as <code>artist:"daft punk" album:discovery -live</code>, compiled into a tree of predicates.
+ * The grammar is:
+ * <pre>
+ * query = and ("OR" and)*
+ * and   = unary*
+ * unary = "-" unary | "(" query ")" | term
+ * term  = [field ":"] (word | '"' phrase '"')
+ * </pre>
+ * A term matches songs whose field contains the word or phrase, ignoring case and accents. The fields are
+ * <code>title</code>, <code>artist</code>, <code>album</code>, <code>path</code>, and <code>format</code> (the file
+ * extension, which must match exactly). A term without a field matches the title, artist or album. Parsing never
+ * fails, so that a query can be evaluated as it is being typed: unknown fields are part of the word, a lone minus
+ * sign is ignored, and a quote or parenthesis which is never closed ends with the query.
+ * <p>
+ * Terms which a {@link SearchIndex} can look up narrow down the candidates, and only the candidates are checked
+ * against the whole query. When there are none, such as for a query which only excludes songs, every song is checked
+ * in a single scan, which may be split over an executor.
+ */
+public final class SongQuery implements Predicate<Song> {
+
+    private enum Field {
+        ANY, TITLE, ARTIST, ALBUM, PATH, FORMAT
+    }
+
+    private final Node root;
+    private final String keyword;
+
+    private SongQuery(Node root, String keyword) {
+        this.root = root;
+        this.keyword = keyword;
+    }
+
+    /**
+     * Compiles a query.
+     *
+     * @param text The query
+     * @return The compiled query
+     */
+    public static SongQuery parse(String text) {
+        Parser parser = new Parser(text);
+        Node root = parser.parseOr();
+        return new SongQuery(root, parser.plain ? text.trim() : null);
+    }
+
+    /**
+     * @return <code>true</code> if the query is made of plain words only, without fields, quotes or operators.
+     */
+    public boolean isKeyword() {
+        return keyword != null;
+    }
+
+    @Override
+    public boolean test(Song song) {
+        return root.test(song);
+    }
+
+    /**
+     * Finds the songs which match the query, on the calling thread.
+     *
+     * @param songs The songs to search
+     * @param index Index over (at least) the songs to search, or <code>null</code> to scan every song
+     * @return The matching songs, in their original order
+     */
+    public List<Song> filter(Collection<? extends Song> songs, SearchIndex index) {
+        return filter(songs, index, Runnable::run, 1);
+    }
+
+    /**
+     * Finds the songs which match the query. If the index cannot narrow down the candidates, the songs are scanned in
+     * chunks, which the executor helps the calling thread with.
+     *
+     * @param songs       The songs to search
+     * @param index       Index over (at least) the songs to search, or <code>null</code> to scan every song
+     * @param executor    Helps scan the songs
+     * @param parallelism Largest number of chunks to scan at once
+     * @return The matching songs, in their original order
+     */
+    public List<Song> filter(Collection<? extends Song> songs, SearchIndex index, Executor executor, int parallelism) {
+        Set<Song> candidates = index != null ? root.candidates(index) : null;
+        if (candidates == null) {
+            List<Song> matches = new ArrayList<>();
+            Parallel.map(new ArrayList<Song>(songs), executor, parallelism,
+                    chunk -> chunk.stream().filter(this).collect(Collectors.toList())).forEach(matches::addAll);
+            return matches;
+        }
+        List<Song> matches = new ArrayList<>(Math.min(candidates.size(), songs.size()));
+        for (Song song : songs) {
+            if (candidates.contains(song) && test(song)) {
+                matches.add(song);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Finds the songs which match the query, best first. A {@link #isKeyword() keyword} is ranked by
+     * {@link SearchIndex#rank(String, int, Predicate)}, which tolerates typos. Other queries are matched exactly, and
+     * their matches keep their original order.
+     *
+     * @param songs The songs to search
+     * @param index Index over (at least) the songs to search
+     * @param limit Largest number of songs to return
+     * @return The best matching songs
+     */
+    public List<Song> rank(Collection<? extends Song> songs, SearchIndex index, int limit) {
+        if (isKeyword()) {
+            Set<Song> listed = identitySet();
+            listed.addAll(songs);
+            return index.rank(keyword, limit, listed::contains);
+        }
+        List<Song> matches = filter(songs, index);
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    private static Set<Song> identitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    /**
+     * Node of the predicate tree.
+     */
+    private interface Node {
+
+        boolean test(Song song);
+
+        /**
+         * Looks up the songs which may match this node.
+         *
+         * @param index The index
+         * @return Every song which may match, and possibly others, or <code>null</code> if the index cannot tell
+         */
+        Set<Song> candidates(SearchIndex index);
+
+    }
+
+    private static final class Term implements Node {
+
+        private final Field field;
+        private final String text;
+
+        Term(Field field, String text) {
+            this.field = field;
+            this.text = SongKeys.normalize(text);
+        }
+
+        @Override
+        public boolean test(Song song) {
+            switch (field) {
+                case TITLE:
+                    return song.getKeys().getTitle().contains(text);
+                case ARTIST:
+                    return song.getKeys().getArtist().contains(text);
+                case ALBUM:
+                    return song.getKeys().getAlbum().contains(text);
+                case PATH:
+                    return song.getKeys().getPath().contains(text);
+                case FORMAT:
+                    return song.getKeys().getFormat().equals(text);
+                default:
+                    SongKeys keys = song.getKeys();
+                    return keys.getTitle().contains(text) || keys.getArtist().contains(text)
+                            || keys.getAlbum().contains(text);
+            }
+        }
+
+        @Override
+        public Set<Song> candidates(SearchIndex index) {
+            // Keywords shorter than a trigram are looked up by a scan, which is no better than our own.
+            if (field == Field.PATH || field == Field.FORMAT || text.length() < 3) {
+                return null;
+            }
+            return index.search(text).keySet();
+        }
+
+    }
+
+    private static final class Not implements Node {
+
+        private final Node node;
+
+        Not(Node node) {
+            this.node = node;
+        }
+
+        @Override
+        public boolean test(Song song) {
+            return !node.test(song);
+        }
+
+        @Override
+        public Set<Song> candidates(SearchIndex index) {
+            return null;
+        }
+
+    }
+
+    private static final class And implements Node {
+
+        private final List<Node> nodes;
+
+        And(List<Node> nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        public boolean test(Song song) {
+            for (Node node : nodes) {
+                if (!node.test(song)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Set<Song> candidates(SearchIndex index) {
+            // Any one of the terms will do; the fewer candidates the better.
+            Set<Song> best = null;
+            for (Node node : nodes) {
+                Set<Song> candidates = node.candidates(index);
+                if (candidates != null && (best == null || candidates.size() < best.size())) {
+                    best = candidates;
+                }
+            }
+            return best;
+        }
+
+    }
+
+    private static final class Or implements Node {
+
+        private final List<Node> nodes;
+
+        Or(List<Node> nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        public boolean test(Song song) {
+            for (Node node : nodes) {
+                if (node.test(song)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Set<Song> candidates(SearchIndex index) {
+            Set<Song> union = identitySet();
+            for (Node node : nodes) {
+                Set<Song> candidates = node.candidates(index);
+                if (candidates == null) {
+                    return null;
+                }
+                union.addAll(candidates);
+            }
+            return union;
+        }
+
+    }
+
+    /**
+     * Recursive descent parser, which reads the query one character at a time.
+     */
+    private static final class Parser {
+
+        private final String text;
+        private int pos;
+        private int depth;
+
+        /**
+         * Whether everything so far was a plain word.
+         */
+        private boolean plain = true;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Node parseOr() {
+            List<Node> nodes = new ArrayList<>();
+            nodes.add(parseAnd());
+            while (skipOperator("OR")) {
+                plain = false;
+                nodes.add(parseAnd());
+            }
+            return nodes.size() == 1 ? nodes.get(0) : new Or(nodes);
+        }
+
+        private Node parseAnd() {
+            List<Node> nodes = new ArrayList<>();
+            while (true) {
+                skipWhitespace();
+                if (pos >= text.length() || isOperator("OR")) {
+                    break;
+                }
+                if (text.charAt(pos) == ')') {
+                    if (depth > 0) {
+                        break;
+                    }
+                    // Stray parenthesis
+                    plain = false;
+                    pos++;
+                    continue;
+                }
+                if (text.charAt(pos) == '-' && !isNegation()) {
+                    // A lone minus sign, which is most likely the start of a negation that is still being typed
+                    pos++;
+                    continue;
+                }
+                nodes.add(parseUnary());
+            }
+            return nodes.size() == 1 ? nodes.get(0) : new And(nodes);
+        }
+
+        private Node parseUnary() {
+            char c = text.charAt(pos);
+            if (c == '-' && isNegation()) {
+                plain = false;
+                pos++;
+                return new Not(parseUnary());
+            }
+            if (c == '(') {
+                plain = false;
+                pos++;
+                depth++;
+                Node node = parseOr();
+                depth--;
+                if (pos < text.length()) {
+                    pos++;
+                }
+                return node;
+            }
+            return parseTerm();
+        }
+
+        private Node parseTerm() {
+            Field field = Field.ANY;
+            int colon = text.indexOf(':', pos);
+            if (colon > pos && colon < wordEnd()) {
+                String name = text.substring(pos, colon);
+                for (Field f : Field.values()) {
+                    if (f != Field.ANY && f.name().equalsIgnoreCase(name)) {
+                        field = f;
+                        plain = false;
+                        pos = colon + 1;
+                        break;
+                    }
+                }
+            }
+
+            String value;
+            if (pos < text.length() && text.charAt(pos) == '"') {
+                plain = false;
+                int end = text.indexOf('"', pos + 1);
+                end = end < 0 ? text.length() : end;
+                value = text.substring(pos + 1, end);
+                pos = Math.min(end + 1, text.length());
+            } else {
+                int end = wordEnd();
+                value = text.substring(pos, end);
+                pos = end;
+            }
+            return new Term(field, value);
+        }
+
+        /**
+         * Whether the minus sign at the current position negates what follows it, be it a word, a phrase or a group.
+         */
+        private boolean isNegation() {
+            if (pos + 1 >= text.length()) {
+                return false;
+            }
+            char next = text.charAt(pos + 1);
+            return next == '(' || next == '"' || !isDelimiter(next);
+        }
+
+        private int wordEnd() {
+            int end = pos;
+            while (end < text.length() && !isDelimiter(text.charAt(end))) {
+                end++;
+            }
+            return end;
+        }
+
+        private boolean skipOperator(String operator) {
+            skipWhitespace();
+            if (isOperator(operator)) {
+                pos += operator.length();
+                return true;
+            }
+            return false;
+        }
+
+        private boolean isOperator(String operator) {
+            int end = pos + operator.length();
+            return text.startsWith(operator, pos) && (end == text.length() || isDelimiter(text.charAt(end)));
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private static boolean isDelimiter(char c) {
+            return Character.isWhitespace(c) || c == '(' || c == ')';
+        }
+
+    }
+
+}
@@ -0,0 +1,254 @@
+package com.sudicode.tunejar.song;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+/**
+ * Holds one shared {@link Song} per audio file, keyed by its normalized absolute path. Playlists hold references to
+ * these songs instead of copies, so adding a song to a playlist never touches the disk, and an edit made through one
+ * playlist shows up in all of them. Every registered song is also kept in a {@link SearchIndex}.
+ */
+public final class SongRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(SongRegistry.class);
+
+    private final ConcurrentMap<String, Song> songs = new ConcurrentHashMap<>();
+    private final Function<File, Song> parser;
+    private final Executor executor;
+    private final int parallelism;
+    private final SearchIndex searchIndex = new SearchIndex();
+
+    /**
+     * Constructor. Keys are computed on the calling thread.
+     *
+     * @param parser Constructs a {@link Song} out of a file which is not registered yet
+     */
+    public SongRegistry(Function<File, Song> parser) {
+        this(parser, Runnable::run, 1);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param parser      Constructs a {@link Song} out of a file which is not registered yet
+     * @param executor    Helps compute the keys of songs which are registered together
+     * @param parallelism Largest number of threads which compute keys at once
+     */
+    public SongRegistry(Function<File, Song> parser, Executor executor, int parallelism) {
+        this.parser = parser;
+        this.executor = executor;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Finds the shared song for a file, parsing and registering it if there is none yet.
+     *
+     * @param file The audio file
+     * @return The shared {@link Song}
+     * @throws IllegalArgumentException if the file type is not supported
+     */
+    public Song get(File file) {
+        String key = key(file);
+        Song song = songs.get(key);
+        if (song == null) {
+            Song parsed = parser.apply(file);
+            synchronized (searchIndex) {
+                song = songs.putIfAbsent(key, parsed);
+                if (song == null) {
+                    song = parsed;
+                    searchIndex.add(parsed);
+                }
+            }
+        }
+        return song;
+    }
+
+    /**
+     * Registers several files, parsing the ones which are not registered yet in batches on an executor. Files which
+     * cannot be parsed are logged and left unregistered.
+     *
+     * @param files     The audio files
+     * @param executor  Parses the batches
+     * @param batchSize Number of files in each batch
+     * @param progress  Receives the number of files done so far, on the calling thread, each time a batch is done
+     * @throws InterruptedException if the current thread was interrupted while waiting, in which case the remaining
+     *                              batches are cancelled
+     */
+    public void getAll(List<File> files, Executor executor, int batchSize, IntConsumer progress)
+            throws InterruptedException {
+        CompletionService<Integer> completion = new ExecutorCompletionService<>(executor);
+        List<Future<Integer>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < files.size(); i += batchSize) {
+                List<File> batch = files.subList(i, Math.min(i + batchSize, files.size()));
+                futures.add(completion.submit(() -> {
+                    for (File file : batch) {
+                        try {
+                            get(file);
+                        } catch (IllegalArgumentException e) {
+                            logger.error("Failed to parse: " + file, e);
+                        }
+                    }
+                    return batch.size();
+                }));
+            }
+            int done = 0;
+            for (int i = 0; i < futures.size(); i++) {
+                done += completion.take().get();
+                progress.accept(done);
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * Finds the shared song for a file, without parsing it.
+     *
+     * @param file The audio file
+     * @return The shared {@link Song}, or <code>null</code> if the file is not registered
+     */
+    public Song lookup(File file) {
+        return songs.get(key(file));
+    }
+
+    /**
+     * Registers a song, replacing the song previously registered for the same file (if any).
+     *
+     * @param song The song
+     */
+    public void put(Song song) {
+        synchronized (searchIndex) {
+            searchIndex.replace(songs.put(key(song.getAudioFile()), song), song);
+        }
+    }
+
+    /**
+     * Registers several songs. Their keys are computed in parallel first, since indexing needs them.
+     *
+     * @param songs The songs
+     */
+    public void putAll(Collection<? extends Song> songs) {
+        Parallel.map(new ArrayList<Song>(songs), executor, parallelism, chunk -> {
+            chunk.forEach(Song::getKeys);
+            return null;
+        });
+        songs.forEach(this::put);
+    }
+
+    /**
+     * Unregisters a file, or every file inside of a directory.
+     *
+     * @param file The file or directory
+     */
+    public void remove(File file) {
+        removeAll(Collections.singleton(file.getAbsolutePath()));
+    }
+
+    /**
+     * Unregisters several files, or every file inside of several directories, in a single pass over the registered
+     * songs.
+     *
+     * @param paths The absolute paths of the files or directories
+     */
+    public void removeAll(Set<String> paths) {
+        if (paths.isEmpty()) {
+            return;
+        }
+        Set<String> keys = new HashSet<>();
+        paths.forEach(path -> keys.add(key(new File(path))));
+        synchronized (searchIndex) {
+            songs.entrySet().removeIf(e -> {
+                if (FilePaths.isWithin(e.getKey(), keys)) {
+                    searchIndex.remove(e.getValue());
+                    return true;
+                }
+                return false;
+            });
+        }
+    }
+
+    /**
+     * Unregisters every file inside of several directories which is not one of the given songs, in a single pass over
+     * the registered songs. Files outside of the directories are left alone.
+     *
+     * @param directories The directories which were scanned
+     * @param found       The songs which were found inside of them
+     */
+    public void retainAll(Collection<File> directories, Collection<? extends Song> found) {
+        Set<String> roots = new HashSet<>();
+        directories.forEach(d -> roots.add(key(d)));
+        Set<String> kept = new HashSet<>();
+        found.forEach(s -> kept.add(key(s.getAudioFile())));
+        synchronized (searchIndex) {
+            songs.entrySet().removeIf(e -> {
+                if (!kept.contains(e.getKey()) && FilePaths.isWithin(e.getKey(), roots)) {
+                    searchIndex.remove(e.getValue());
+                    return true;
+                }
+                return false;
+            });
+        }
+    }
+
+    /**
+     * Re-indexes a registered song after its title, artist or album has been edited.
+     *
+     * @param song The song
+     */
+    public void reindex(Song song) {
+        searchIndex.update(song);
+    }
+
+    /**
+     * @return Index over every registered song.
+     */
+    public SearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    /**
+     * @return Every registered song, as a live view which is safe to iterate while songs are being registered.
+     */
+    public Collection<Song> getSongs() {
+        return Collections.unmodifiableCollection(songs.values());
+    }
+
+    /**
+     * @return Number of registered songs.
+     */
+    public int size() {
+        return songs.size();
+    }
+
+    /**
+     * Normalizes the path of a file without touching the disk (unlike {@link File#getCanonicalPath()}), so that
+     * <code>a/../b.mp3</code> and <code>b.mp3</code> map to the same song.
+     *
+     * @param file The file
+     * @return The key of the file
+     */
+    static String key(File file) {
+        return file.toPath().toAbsolutePath().normalize().toString();
+    }
+
+}
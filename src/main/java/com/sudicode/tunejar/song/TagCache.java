@@ -0,0 +1,244 @@
+package com.sudicode.tunejar.song;
+
+import com.sudicode.tunejar.config.AtomicFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.apache.commons.lang3.StringUtils.defaultString;
+
+/**
+ * On-disk cache of song metadata, keyed by absolute path. An entry is only trusted while the size and modification
+ * time of its file are unchanged, so jaudiotagger only needs to read files that are new or have been modified. Since it
+ * holds every song in the library, it also lets the library be displayed at startup before it is scanned.
+ */
+public final class TagCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(TagCache.class);
+
+    private static final int MAGIC = 0x544A5443;
+    private static final int VERSION = 1;
+
+    private final File file;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<String> touched = ConcurrentHashMap.newKeySet();
+    private volatile boolean dirty;
+
+    /**
+     * Constructor.
+     *
+     * @param file The file which backs this cache
+     */
+    public TagCache(final File file) {
+        this.file = file;
+    }
+
+    /**
+     * Replaces the contents of this cache with the contents of its backing file. A missing or unreadable file results
+     * in an empty cache. The file is read in one sequential pass rather than memory mapped; see {@link TagReader}.
+     */
+    public void load() {
+        entries.clear();
+        touched.clear();
+        dirty = false;
+        if (!file.isFile()) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                logger.info("Ignoring incompatible tag cache: " + file);
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = readString(in);
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                entries.put(path, new Entry(size, lastModified, readString(in), readString(in), readString(in)));
+            }
+            logger.info("Loaded {} entries from the tag cache.", count);
+        } catch (IOException e) {
+            logger.error("Failed to load tag cache: " + file, e);
+            entries.clear();
+        }
+    }
+
+    /**
+     * Writes this cache to its backing file through {@link AtomicFile}, if it has changed since it was last loaded or
+     * saved.
+     */
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+
+        // Take a snapshot, since other threads may still be adding entries. Those mark the cache as dirty again.
+        dirty = false;
+        Map<String, Entry> snapshot = new HashMap<>(entries);
+        try {
+            AtomicFile.write(file, out -> {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(snapshot.size());
+                for (Map.Entry<String, Entry> e : snapshot.entrySet()) {
+                    Entry entry = e.getValue();
+                    writeString(out, e.getKey());
+                    out.writeLong(entry.size);
+                    out.writeLong(entry.lastModified);
+                    writeString(out, entry.title);
+                    writeString(out, entry.artist);
+                    writeString(out, entry.album);
+                }
+            });
+            logger.info("Saved {} entries to the tag cache.", snapshot.size());
+        } catch (IOException e) {
+            dirty = true;
+            logger.error("Failed to save tag cache: " + file, e);
+        }
+    }
+
+    /**
+     * Constructs a {@link Song} out of a file. If the file is unchanged since it was cached, the cached metadata is
+     * used. Otherwise, the file is parsed and the result is cached.
+     *
+     * @param file The file to be used
+     * @return The constructed {@link Song}
+     * @throws IllegalArgumentException if the file type is not supported
+     */
+    public Song get(final File file) {
+        String path = file.getAbsolutePath();
+        touched.add(path);
+
+        BasicFileAttributes attrs = readAttributes(file);
+        Entry entry = entries.get(path);
+        if (entry != null && attrs != null && entry.matches(attrs)) {
+            return SongFactory.create(file, entry.title, entry.artist, entry.album);
+        }
+
+        Song song = SongFactory.create(file);
+        if (attrs != null) {
+            entries.put(path, new Entry(attrs.size(), attrs.lastModifiedTime().toMillis(),
+                    defaultString(song.title.get()), defaultString(song.artist.get()), defaultString(song.album.get())));
+            dirty = true;
+        }
+        return song;
+    }
+
+    /**
+     * Constructs a {@link Song} out of every entry inside of some directories, without checking the entries against the
+     * file system. This shows the library as it was when this cache was last saved, before it has been scanned.
+     *
+     * @param directories The music directories
+     * @return The songs, sorted by path
+     */
+    public List<Song> getAll(final Collection<File> directories) {
+        Set<String> roots = new HashSet<>();
+        directories.forEach(d -> roots.add(d.getAbsolutePath()));
+        List<Song> songs = new ArrayList<>();
+        new TreeMap<>(entries).forEach((path, entry) -> {
+            if (FilePaths.isWithin(path, roots)) {
+                songs.add(SongFactory.create(new File(path), entry.title, entry.artist, entry.album));
+            }
+        });
+        return songs;
+    }
+
+    /**
+     * Checks if the file has an up-to-date entry in this cache.
+     *
+     * @param file The file to check
+     * @return True if {@link #get(File)} would not need to parse the file.
+     */
+    public boolean isCached(final File file) {
+        Entry entry = entries.get(file.getAbsolutePath());
+        BasicFileAttributes attrs = readAttributes(file);
+        return entry != null && attrs != null && entry.matches(attrs);
+    }
+
+    /**
+     * Evicts every entry inside of the given directories which has not been requested through {@link #get(File)}
+     * since the cache was loaded or last swept. Call this after a full scan of those directories so that deleted files
+     * do not linger in the cache. Entries inside of directories which were not scanned, for example because they are
+     * offline, are kept.
+     *
+     * @param directories The directories which were scanned
+     */
+    public void sweep(final Collection<File> directories) {
+        Set<String> roots = new HashSet<>();
+        directories.forEach(d -> roots.add(d.getAbsolutePath()));
+        if (entries.keySet().removeIf(path -> !touched.contains(path) && FilePaths.isWithin(path, roots))) {
+            dirty = true;
+        }
+        touched.clear();
+    }
+
+    /**
+     * @return The number of cached entries.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private static BasicFileAttributes readAttributes(final File file) {
+        try {
+            return Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        byte[] buff = new byte[in.readInt()];
+        in.readFully(buff);
+        return new String(buff, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(final DataOutputStream out, final String s) throws IOException {
+        byte[] buff = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(buff.length);
+        out.write(buff);
+    }
+
+    /**
+     * Cached metadata of a single file.
+     */
+    private static final class Entry {
+        private final long size;
+        private final long lastModified;
+        private final String title;
+        private final String artist;
+        private final String album;
+
+        private Entry(long size, long lastModified, String title, String artist, String album) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.title = title;
+            this.artist = artist;
+            this.album = album;
+        }
+
+        private boolean matches(BasicFileAttributes attrs) {
+            return size == attrs.size() && lastModified == attrs.lastModifiedTime().toMillis();
+        }
+    }
+
+}
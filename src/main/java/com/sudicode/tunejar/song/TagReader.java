@@ -0,0 +1,427 @@
+package com.sudicode.tunejar.song;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Lightweight reader for the title, artist, and album of MP3 and MP4 files. Only the regions of the file which hold
+ * metadata (the ID3v2 header and frames, the ID3v1 trailer, or the MP4 <code>moov</code> atom) are read, so audio
+ * frames are never read. Regions are read into heap buffers rather than memory mapped, since a mapped file stays
+ * locked on Windows until the mapping is garbage collected. Each method returns <code>null</code> when it encounters
+ * something it does not handle (such as unsynchronisation, compression, or encryption), in which case the caller
+ * should fall back to jaudiotagger.
+ */
+final class TagReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(TagReader.class);
+
+    private static final int ID3V1_LENGTH = 128;
+    private static final int ID3V2_HEADER_LENGTH = 10;
+
+    /**
+     * Illegal.
+     */
+    private TagReader() {
+    }
+
+    /**
+     * Reads the metadata of an MP3 file. ID3v2 is preferred over ID3v1, like jaudiotagger does.
+     *
+     * @param file The MP3 file
+     * @return The metadata, or <code>null</code> if jaudiotagger should be used instead
+     */
+    static Tags readMp3(final File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+
+            // ID3v2
+            if (length >= ID3V2_HEADER_LENGTH) {
+                ByteBuffer header = ByteBuffer.allocate(ID3V2_HEADER_LENGTH);
+                channel.read(header, 0);
+                header.flip();
+                if (header.get(0) == 'I' && header.get(1) == 'D' && header.get(2) == '3') {
+                    long tagLength = Math.min(length, ID3V2_HEADER_LENGTH + syncsafe(header, 6));
+                    return readId3v2(read(channel, 0, tagLength));
+                }
+            }
+
+            // ID3v1
+            if (length >= ID3V1_LENGTH) {
+                ByteBuffer trailer = read(channel, length - ID3V1_LENGTH, ID3V1_LENGTH);
+                if (trailer.get(0) == 'T' && trailer.get(1) == 'A' && trailer.get(2) == 'G') {
+                    return new Tags(id3v1String(trailer, 3), id3v1String(trailer, 33), id3v1String(trailer, 63));
+                }
+            }
+            return new Tags("", "", "");
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Falling back to jaudiotagger for: " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Reads the metadata of an MP4 file from <code>moov/udta/meta/ilst</code>.
+     *
+     * @param file The MP4 file
+     * @return The metadata, or <code>null</code> if jaudiotagger should be used instead
+     */
+    static Tags readMp4(final File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // Find the moov atom by hopping between top level atom headers, then read only that atom.
+            long length = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(16);
+            for (long pos = 0; pos + 8 <= length; ) {
+                header.clear();
+                channel.read(header, pos);
+                header.flip();
+                long size = header.getInt() & 0xFFFFFFFFL;
+                int type = header.getInt();
+                int headerLength = 8;
+                if (size == 1) {
+                    size = header.getLong();
+                    headerLength = 16;
+                } else if (size == 0) {
+                    size = length - pos;
+                }
+                if (size < headerLength) {
+                    return null;
+                }
+                if (type == fourCC("moov")) {
+                    ByteBuffer moov = read(channel, pos + headerLength, Math.min(size, length - pos) - headerLength);
+                    return readMoov(moov);
+                }
+                pos += size;
+            }
+            return null;
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Falling back to jaudiotagger for: " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Reads a region of a file into a heap buffer.
+     *
+     * @param channel  The file
+     * @param position Offset of the region
+     * @param length   Length of the region
+     * @return The region, ready to be read
+     * @throws IOException if the file ends before the region does, or the region is too large for a buffer.
+     */
+    private static ByteBuffer read(final FileChannel channel, final long position, final long length)
+            throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Region too large: " + length + " bytes");
+        }
+        ByteBuffer buff = ByteBuffer.allocate((int) length);
+        while (buff.hasRemaining()) {
+            if (channel.read(buff, position + buff.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        buff.flip();
+        return buff;
+    }
+
+    // --------------- ID3 --------------- //
+
+    /**
+     * Reads the title, artist, and album frames of an ID3v2.2, ID3v2.3, or ID3v2.4 tag.
+     *
+     * @param tag The whole tag, including its header
+     * @return The metadata, or <code>null</code> if jaudiotagger should be used instead
+     */
+    private static Tags readId3v2(final ByteBuffer tag) {
+        int version = tag.get(3);
+        int flags = tag.get(5);
+        if (version < 2 || version > 4 || (flags & 0x80) != 0 || (version == 2 && (flags & 0x40) != 0)) {
+            return null;
+        }
+        tag.position(ID3V2_HEADER_LENGTH);
+
+        // Skip the extended header.
+        if (version > 2 && (flags & 0x40) != 0) {
+            int extended = version == 3 ? tag.getInt(tag.position()) + 4 : syncsafe(tag, tag.position());
+            tag.position(tag.position() + extended);
+        }
+
+        String title = "";
+        String artist = "";
+        String album = "";
+        int idLength = version == 2 ? 3 : 4;
+        int headerLength = version == 2 ? 6 : 10;
+        while (tag.remaining() >= headerLength) {
+            int start = tag.position();
+            String id = frameId(tag, start, idLength);
+            if (id == null) {
+                break; // Padding
+            }
+
+            int size;
+            int formatFlags = 0;
+            if (version == 2) {
+                size = ((tag.get(start + 3) & 0xFF) << 16) | ((tag.get(start + 4) & 0xFF) << 8)
+                        | (tag.get(start + 5) & 0xFF);
+            } else {
+                size = version == 3 ? tag.getInt(start + 4) : syncsafe(tag, start + 4);
+                formatFlags = tag.get(start + 9);
+            }
+            if (size < 0 || size > tag.remaining() - headerLength) {
+                return null;
+            }
+
+            // Compression, encryption, grouping, unsynchronisation, data length indicator.
+            boolean unsupported = version == 3 ? (formatFlags & 0xE0) != 0 : (formatFlags & 0x4F) != 0;
+            int body = start + headerLength;
+            switch (id) {
+                case "TT2":
+                case "TIT2":
+                    if (unsupported) {
+                        return null;
+                    }
+                    title = textFrame(tag, body, size);
+                    break;
+                case "TP1":
+                case "TPE1":
+                    if (unsupported) {
+                        return null;
+                    }
+                    artist = textFrame(tag, body, size);
+                    break;
+                case "TAL":
+                case "TALB":
+                    if (unsupported) {
+                        return null;
+                    }
+                    album = textFrame(tag, body, size);
+                    break;
+                default:
+                    break;
+            }
+            tag.position(body + size);
+        }
+        return new Tags(title, artist, album);
+    }
+
+    /**
+     * @return The frame ID at the specified index, or <code>null</code> if there is no valid frame ID there.
+     */
+    private static String frameId(final ByteBuffer tag, final int index, final int length) {
+        char[] id = new char[length];
+        for (int i = 0; i < length; i++) {
+            char c = (char) tag.get(index + i);
+            if ((c < 'A' || c > 'Z') && (c < '0' || c > '9')) {
+                return null;
+            }
+            id[i] = c;
+        }
+        return new String(id);
+    }
+
+    /**
+     * Decodes the first value of an ID3v2 text frame.
+     */
+    private static String textFrame(final ByteBuffer tag, final int index, final int size) {
+        if (size < 1) {
+            return "";
+        }
+        Charset charset;
+        int unit;
+        switch (tag.get(index)) {
+            case 0:
+                charset = StandardCharsets.ISO_8859_1;
+                unit = 1;
+                break;
+            case 1:
+                charset = StandardCharsets.UTF_16;
+                unit = 2;
+                break;
+            case 2:
+                charset = StandardCharsets.UTF_16BE;
+                unit = 2;
+                break;
+            case 3:
+                charset = StandardCharsets.UTF_8;
+                unit = 1;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown text encoding");
+        }
+
+        // Stop at the first terminator, since only the first value is used.
+        int start = index + 1;
+        int end = index + size;
+        int length = 0;
+        while (start + length + unit <= end && !isTerminator(tag, start + length, unit)) {
+            length += unit;
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = tag.get(start + i);
+        }
+        return new String(bytes, charset);
+    }
+
+    private static boolean isTerminator(final ByteBuffer tag, final int index, final int unit) {
+        return tag.get(index) == 0 && (unit == 1 || tag.get(index + 1) == 0);
+    }
+
+    /**
+     * Decodes a fixed length ID3v1 field, dropping the null padding and trailing whitespace.
+     */
+    private static String id3v1String(final ByteBuffer trailer, final int index) {
+        byte[] bytes = new byte[30];
+        int length = 0;
+        while (length < bytes.length && trailer.get(index + length) != 0) {
+            bytes[length] = trailer.get(index + length);
+            length++;
+        }
+        return new String(bytes, 0, length, StandardCharsets.ISO_8859_1).trim();
+    }
+
+    /**
+     * Decodes a 28 bit synchsafe integer.
+     */
+    private static int syncsafe(final ByteBuffer buff, final int index) {
+        return ((buff.get(index) & 0x7F) << 21) | ((buff.get(index + 1) & 0x7F) << 14)
+                | ((buff.get(index + 2) & 0x7F) << 7) | (buff.get(index + 3) & 0x7F);
+    }
+
+    // --------------- MP4 --------------- //
+
+    /**
+     * Reads the title, artist, and album items out of the contents of a <code>moov</code> atom.
+     *
+     * @param moov The contents of the <code>moov</code> atom
+     * @return The metadata, or <code>null</code> if jaudiotagger should be used instead
+     */
+    private static Tags readMoov(final ByteBuffer moov) {
+        ByteBuffer udta = child(moov, fourCC("udta"));
+        ByteBuffer meta = udta == null ? null : child(udta, fourCC("meta"));
+        if (meta == null) {
+            return new Tags("", "", "");
+        }
+
+        // meta is usually a full atom (with version and flags), but not always.
+        if (meta.remaining() >= 8 && meta.getInt(meta.position() + 4) != fourCC("hdlr")) {
+            meta.position(meta.position() + 4);
+        }
+        ByteBuffer ilst = child(meta, fourCC("ilst"));
+        if (ilst == null) {
+            return new Tags("", "", "");
+        }
+
+        String title = "";
+        String artist = "";
+        String album = "";
+        while (ilst.remaining() >= 8) {
+            int size = ilst.getInt(ilst.position());
+            int type = ilst.getInt(ilst.position() + 4);
+            if (size < 8 || size > ilst.remaining()) {
+                return null;
+            }
+            ByteBuffer item = slice(ilst, ilst.position() + 8, size - 8);
+            if (type == fourCC("\u00A9nam")) {
+                title = dataItem(item);
+            } else if (type == fourCC("\u00A9ART")) {
+                artist = dataItem(item);
+            } else if (type == fourCC("\u00A9alb")) {
+                album = dataItem(item);
+            }
+            ilst.position(ilst.position() + size);
+        }
+        if (title == null || artist == null || album == null) {
+            return null;
+        }
+        return new Tags(title, artist, album);
+    }
+
+    /**
+     * Decodes the <code>data</code> atom of an <code>ilst</code> item.
+     *
+     * @return The text, or <code>null</code> if the data is not text
+     */
+    private static String dataItem(final ByteBuffer item) {
+        ByteBuffer data = child(item, fourCC("data"));
+        if (data == null || data.remaining() < 8) {
+            return null;
+        }
+        int dataType = data.getInt() & 0xFFFFFF;
+        data.getInt(); // Locale
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        switch (dataType) {
+            case 1:
+                return new String(bytes, StandardCharsets.UTF_8);
+            case 2:
+                return new String(bytes, StandardCharsets.UTF_16BE);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Finds the first child atom of the specified type.
+     *
+     * @param parent The contents of the parent atom
+     * @param type   The type of child atom
+     * @return The contents of the child atom, or <code>null</code> if there is none
+     */
+    private static ByteBuffer child(final ByteBuffer parent, final int type) {
+        for (int pos = parent.position(); pos + 8 <= parent.limit(); ) {
+            long size = parent.getInt(pos) & 0xFFFFFFFFL;
+            int headerLength = 8;
+            if (size == 1) {
+                size = parent.getLong(pos + 8);
+                headerLength = 16;
+            } else if (size == 0) {
+                size = parent.limit() - pos;
+            }
+            if (size < headerLength || size > parent.limit() - pos) {
+                throw new BufferUnderflowException();
+            }
+            if (parent.getInt(pos + 4) == type) {
+                return slice(parent, pos + headerLength, (int) size - headerLength);
+            }
+            pos += size;
+        }
+        return null;
+    }
+
+    private static ByteBuffer slice(final ByteBuffer buff, final int index, final int length) {
+        ByteBuffer dup = buff.duplicate();
+        dup.limit(index + length).position(index);
+        return dup.slice();
+    }
+
+    private static int fourCC(final String s) {
+        return ((s.charAt(0) & 0xFF) << 24) | ((s.charAt(1) & 0xFF) << 16) | ((s.charAt(2) & 0xFF) << 8)
+                | (s.charAt(3) & 0xFF);
+    }
+
+    /**
+     * Title, artist, and album of a song.
+     */
+    static final class Tags {
+        final String title;
+        final String artist;
+        final String album;
+
+        Tags(final String title, final String artist, final String album) {
+            this.title = title;
+            this.artist = artist;
+            this.album = album;
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.sudicode.tunejar.config;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link AtomicFile} class.
+ */
+public class AtomicFileTest {
+
+    private File tempDir;
+
+    @Before
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("AtomicFileTest").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(tempDir);
+    }
+
+    /**
+     * A file should be created along with its parent directories, and then replaced.
+     */
+    @Test
+    public void testWrite() throws IOException {
+        File target = new File(tempDir, "a/b/file");
+        AtomicFile.write(target, out -> out.writeInt(1));
+        AtomicFile.write(target, out -> out.writeLong(2));
+        assertArrayEquals(new byte[] {0, 0, 0, 0, 0, 0, 0, 2}, Files.readAllBytes(target.toPath()));
+        assertFalse(new File(tempDir, "a/b/file.tmp").exists());
+    }
+
+    /**
+     * A writer which fails should leave the file as it was, and no temporary file behind.
+     */
+    @Test
+    public void testFailure() throws IOException {
+        File target = new File(tempDir, "file");
+        AtomicFile.write(target, out -> out.writeInt(1));
+        try {
+            AtomicFile.write(target, out -> {
+                out.writeInt(2);
+                throw new IOException("Expected");
+            });
+            fail("Expected an IOException");
+        } catch (IOException expected) {
+            assertEquals("Expected", expected.getMessage());
+        }
+        assertArrayEquals(new byte[] {0, 0, 0, 1}, Files.readAllBytes(target.toPath()));
+        assertFalse(new File(tempDir, "file.tmp").exists());
+    }
+
+}
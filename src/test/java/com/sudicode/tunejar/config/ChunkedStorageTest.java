@@ -0,0 +1,68 @@
+package com.sudicode.tunejar.config;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.prefs.Preferences;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link ChunkedStorage} class.
+ */
+public class ChunkedStorageTest {
+
+    private final MemoryPreferences prefs = new MemoryPreferences();
+
+    /**
+     * Values of any size should round trip, and small values should be stored exactly as before.
+     */
+    @Test
+    public void testRoundTrip() {
+        byte[] small = randomBytes(ChunkedStorage.CHUNK_SIZE);
+        ChunkedStorage.putByteArray(prefs, "key", small);
+        assertArrayEquals(small, prefs.getByteArray("key", null));
+        assertArrayEquals(small, ChunkedStorage.getByteArray(prefs, "key", null));
+
+        byte[] large = randomBytes(1000000);
+        ChunkedStorage.putByteArray(prefs, "key", large);
+        assertArrayEquals(large, ChunkedStorage.getByteArray(prefs, "key", null));
+        assertNull(prefs.get("key", null));
+        for (String value : prefs.values.values()) {
+            assertTrue(value.length() <= Preferences.MAX_VALUE_LENGTH);
+        }
+    }
+
+    /**
+     * Shrinking a value should remove the chunks it no longer needs.
+     */
+    @Test
+    public void testShrink() {
+        ChunkedStorage.putByteArray(prefs, "key", randomBytes(5 * ChunkedStorage.CHUNK_SIZE));
+        ChunkedStorage.putByteArray(prefs, "key", randomBytes(2 * ChunkedStorage.CHUNK_SIZE + 1));
+        assertEquals(4, prefs.values.size()); // Three chunks and the chunk count
+
+        byte[] small = randomBytes(10);
+        ChunkedStorage.putByteArray(prefs, "key", small);
+        assertEquals(1, prefs.values.size());
+        assertArrayEquals(small, ChunkedStorage.getByteArray(prefs, "key", null));
+    }
+
+    /**
+     * A missing chunk should yield the default value rather than a truncated one.
+     */
+    @Test
+    public void testMissingChunk() {
+        ChunkedStorage.putByteArray(prefs, "key", randomBytes(3 * ChunkedStorage.CHUNK_SIZE));
+        prefs.remove("key.1");
+        byte[] def = new byte[0];
+        assertSame(def, ChunkedStorage.getByteArray(prefs, "key", def));
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.sudicode.tunejar.config;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.prefs.AbstractPreferences;
+import java.util.prefs.Preferences;
+
+/**
+ * {@link Preferences} node which is kept in memory, enforces the value length limit, and counts writes.
+ */
+final class MemoryPreferences extends AbstractPreferences {
+
+    final Map<String, String> values = new HashMap<>();
+    int writes;
+
+    MemoryPreferences() {
+        super(null, "");
+    }
+
+    @Override
+    protected void putSpi(String key, String value) {
+        values.put(key, value);
+        writes++;
+    }
+
+    @Override
+    protected String getSpi(String key) {
+        return values.get(key);
+    }
+
+    @Override
+    protected void removeSpi(String key) {
+        values.remove(key);
+        writes++;
+    }
+
+    @Override
+    protected void removeNodeSpi() {
+    }
+
+    @Override
+    protected String[] keysSpi() {
+        return values.keySet().toArray(new String[0]);
+    }
+
+    @Override
+    protected String[] childrenNamesSpi() {
+        return new String[0];
+    }
+
+    @Override
+    protected AbstractPreferences childSpi(String name) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected void syncSpi() {
+    }
+
+    @Override
+    protected void flushSpi() {
+    }
+
+}
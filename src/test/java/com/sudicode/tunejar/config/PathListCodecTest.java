@@ -0,0 +1,79 @@
+package com.sudicode.tunejar.config;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link PathListCodec} class.
+ */
+public class PathListCodecTest {
+
+    /**
+     * Paths should round trip exactly, whatever their separators, and in their original order.
+     */
+    @Test
+    public void testRoundTrip() {
+        List<String> paths = Arrays.asList("/music/b/2.mp3", "/music/a/1.mp3", "/music/b/2.mp3", "relative.wav", "",
+                "C:\\Users\\me\\Music\\Caf\u00e9\\song.m4a", "/", "//share/x.mp3", "/music/a/");
+        assertEquals(paths, PathListCodec.decode(ByteBuffer.wrap(PathListCodec.encode(paths))));
+        assertEquals(Collections.emptyList(),
+                PathListCodec.decode(ByteBuffer.wrap(PathListCodec.encode(Collections.emptyList()))));
+
+        // Decoding should also work on a direct buffer, starting at its current position.
+        byte[] encoded = PathListCodec.encode(paths);
+        ByteBuffer direct = ByteBuffer.allocateDirect(encoded.length + 3);
+        direct.position(3);
+        direct.put(encoded).position(3);
+        assertEquals(paths, PathListCodec.decode(direct));
+    }
+
+    /**
+     * Shared directories should only be stored once.
+     */
+    @Test
+    public void testCompact() {
+        List<String> paths = new ArrayList<>();
+        int plain = 0;
+        for (int i = 0; i < 1000; i++) {
+            String path = "/home/user/Music/Some Artist/Album " + (i / 10) + "/Track " + i + ".mp3";
+            paths.add(path);
+            plain += path.getBytes(StandardCharsets.UTF_8).length + 1;
+        }
+        int encoded = PathListCodec.encode(paths).length;
+        assertTrue("Encoded size " + encoded + " vs plain " + plain, encoded * 3 < plain);
+    }
+
+    /**
+     * Anything which is not a complete, supported encoding should be rejected.
+     */
+    @Test
+    public void testInvalid() {
+        byte[] encoded = PathListCodec.encode(Arrays.asList("/a/b.mp3", "/a/c.mp3"));
+        assertFalse(PathListCodec.isEncoded(ByteBuffer.wrap("/a/b.mp3\n".getBytes(StandardCharsets.UTF_8))));
+        for (int length = 0; length < encoded.length; length++) {
+            try {
+                PathListCodec.decode(ByteBuffer.wrap(Arrays.copyOf(encoded, length)));
+                fail("Decoded a truncated path list of length " + length);
+            } catch (IllegalArgumentException expected) {
+                // Expected
+            }
+        }
+
+        encoded[4]++; // Version
+        try {
+            PathListCodec.decode(ByteBuffer.wrap(encoded));
+            fail("Decoded an unsupported version");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+
+}
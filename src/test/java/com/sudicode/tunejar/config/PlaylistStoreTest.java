@@ -0,0 +1,146 @@
+package com.sudicode.tunejar.config;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link PlaylistStore} class.
+ */
+public class PlaylistStoreTest {
+
+    private File tempDir;
+    private PlaylistStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("PlaylistStoreTest").toFile();
+        store = new PlaylistStore(tempDir);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(tempDir);
+    }
+
+    /**
+     * Playlists should survive a reload, in the order in which they were created.
+     */
+    @Test
+    public void testSaveAndLoad() throws InterruptedException {
+        store.save("B", Arrays.asList("b1", "b2"));
+        store.save("A", Collections.singletonList("a1"));
+        store.save("B", Collections.singletonList("b3"));
+
+        PlaylistStore reloaded = new PlaylistStore(tempDir);
+        assertEquals(Arrays.asList("B", "A"), reloaded.getNames());
+        assertEquals(Collections.singletonList("b3"), reloaded.load("B"));
+        assertEquals(Collections.singletonList("a1"), reloaded.load("A"));
+        assertNull(reloaded.load("C"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            assertEquals(reloaded.loadAll(), reloaded.loadAll(executor));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Renaming should keep the contents and position of a playlist, and deleting should remove its file.
+     */
+    @Test
+    public void testRenameAndDelete() {
+        store.save("A", Collections.singletonList("a"));
+        store.save("B", Collections.singletonList("b"));
+        store.save("C", Collections.singletonList("c"));
+        store.rename("B", "Z");
+        store.delete("A");
+
+        PlaylistStore reloaded = new PlaylistStore(tempDir);
+        assertEquals(Arrays.asList("Z", "C"), reloaded.getNames());
+        assertEquals(Collections.singletonList("b"), reloaded.load("Z"));
+        assertEquals(3, tempDir.list().length); // Index plus two playlists
+    }
+
+    /**
+     * Renaming a playlist onto the name of another one should fail, and leave both playlists as they were.
+     */
+    @Test
+    public void testRenameConflict() {
+        store.save("A", Collections.singletonList("a"));
+        store.save("B", Collections.singletonList("b"));
+        try {
+            store.rename("A", "B");
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+
+        PlaylistStore reloaded = new PlaylistStore(tempDir);
+        assertEquals(Arrays.asList("A", "B"), reloaded.getNames());
+        assertEquals(Collections.singletonList("a"), reloaded.load("A"));
+        assertEquals(Collections.singletonList("b"), reloaded.load("B"));
+    }
+
+    /**
+     * Replacing every playlist should delete the ones which are not in the map.
+     */
+    @Test
+    public void testReplaceAll() {
+        store.save("A", Collections.singletonList("a"));
+        store.replaceAll(ImmutableMap.of("B", Collections.singletonList("b")));
+        assertEquals(new LinkedHashMap<>(ImmutableMap.of("B", Collections.singletonList("b"))),
+                new PlaylistStore(tempDir).loadAll());
+        store.replaceAll(new LinkedHashMap<>());
+        assertTrue(new PlaylistStore(tempDir).isEmpty());
+    }
+
+    /**
+     * A file which cannot be written should fail the change, and leave the playlists as they were.
+     */
+    @Test
+    public void testWriteFailure() throws IOException {
+        store.save("A", Collections.singletonList("a"));
+        File index = new File(tempDir, "index");
+        assertTrue(index.delete());
+        assertTrue(new File(index, "blocker").mkdirs());
+
+        try {
+            store.save("B", Collections.singletonList("b"));
+            fail("Expected an UncheckedIOException");
+        } catch (UncheckedIOException expected) {
+            // Expected
+        }
+        try {
+            store.rename("A", "Z");
+            fail("Expected an UncheckedIOException");
+        } catch (UncheckedIOException expected) {
+            // Expected
+        }
+        try {
+            store.delete("A");
+            fail("Expected an UncheckedIOException");
+        } catch (UncheckedIOException expected) {
+            // Expected
+        }
+        assertEquals(Collections.singletonList("A"), store.getNames());
+        assertEquals(Collections.singletonList("a"), store.load("A"));
+        assertFalse(new File(tempDir, "index.tmp").exists());
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.sudicode.tunejar.config;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.prefs.BackingStoreException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link WriteBehindPreferences} class.
+ */
+public class WriteBehindPreferencesTest {
+
+    private final MemoryPreferences target = new MemoryPreferences();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * A burst of updates should be visible right away, and reach the target as one write per key.
+     */
+    @Test
+    public void testCoalesce() throws InterruptedException {
+        WriteBehindPreferences prefs = new WriteBehindPreferences(target, executor, 200);
+        for (int i = 0; i < 1000; i++) {
+            prefs.putDouble("windowWidth", i);
+            prefs.putDouble("windowHeight", i);
+        }
+        assertEquals(999, prefs.getDouble("windowWidth", 0), 0);
+        assertEquals(0, target.writes);
+
+        executor.schedule(() -> { }, 400, TimeUnit.MILLISECONDS);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(2, target.writes);
+        assertEquals(999, target.getDouble("windowHeight", 0), 0);
+    }
+
+    /**
+     * Removals should be buffered too, and flushing should write everything at once.
+     */
+    @Test
+    public void testFlush() throws BackingStoreException {
+        target.put("a", "1");
+        target.put("b", "2");
+        target.writes = 0;
+
+        WriteBehindPreferences prefs = new WriteBehindPreferences(target, executor, TimeUnit.HOURS.toMillis(1));
+        prefs.remove("a");
+        prefs.put("c", "3");
+        assertNull(prefs.get("a", null));
+        assertEquals("2", prefs.get("b", null));
+        assertEquals(new HashSet<>(Arrays.asList("b", "c")), new HashSet<>(Arrays.asList(prefs.keys())));
+        assertEquals(0, target.writes);
+
+        prefs.flush();
+        assertEquals(2, target.writes);
+        assertEquals(new HashSet<>(Arrays.asList("b", "c")), target.values.keySet());
+
+        prefs.clear();
+        prefs.flush();
+        assertTrue(target.values.isEmpty());
+    }
+
+    /**
+     * Once the executor has shut down, changes should be written through.
+     */
+    @Test
+    public void testShutdown() {
+        executor.shutdown();
+        WriteBehindPreferences prefs = new WriteBehindPreferences(target, executor, 50);
+        prefs.putBoolean("maximized", true);
+        assertTrue(target.getBoolean("maximized", false));
+    }
+
+}
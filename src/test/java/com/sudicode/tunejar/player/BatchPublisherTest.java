@@ -0,0 +1,104 @@
+package com.sudicode.tunejar.player;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link BatchPublisher} class.
+ */
+public class BatchPublisherTest {
+
+    private ScheduledExecutorService executor;
+    private final Queue<Runnable> fxQueue = new ArrayDeque<>();
+    private final List<List<Integer>> batches = new ArrayList<>();
+    private UiDispatcher dispatcher;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        dispatcher = new UiDispatcher(executor, fxQueue::add, 0);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private void runAll() {
+        for (Runnable task; (task = fxQueue.poll()) != null; ) {
+            task.run();
+        }
+    }
+
+    /**
+     * A batch should be published once it is full, and items added while it is pending should wait for the next one.
+     */
+    @Test
+    public void testMaxSize() {
+        BatchPublisher<Integer> publisher = new BatchPublisher<>(dispatcher, 3, TimeUnit.HOURS.toMillis(1),
+                batches::add);
+        for (int i = 1; i <= 7; i++) {
+            publisher.add(i);
+        }
+        runAll();
+        assertEquals(Collections.singletonList(Arrays.asList(1, 2, 3)), batches);
+
+        publisher.add(8);
+        runAll();
+        assertEquals(Arrays.asList(Arrays.asList(1, 2, 3), Arrays.asList(4, 5, 6, 7, 8)), batches);
+
+        publisher.add(9);
+        runAll();
+        assertEquals(2, batches.size());
+        publisher.finish();
+        runAll();
+        assertEquals(Collections.singletonList(9), batches.get(2));
+    }
+
+    /**
+     * An overdue item should be published on its own.
+     */
+    @Test
+    public void testInterval() {
+        BatchPublisher<Integer> publisher = new BatchPublisher<>(dispatcher, 100, 0, batches::add);
+        publisher.add(1);
+        runAll();
+        publisher.add(2);
+        runAll();
+        assertEquals(Arrays.asList(Collections.singletonList(1), Collections.singletonList(2)), batches);
+    }
+
+    /**
+     * Finishing while a batch is still pending should add the rest to that batch, rather than replace it.
+     */
+    @Test
+    public void testFinishWhilePending() {
+        BatchPublisher<Integer> publisher = new BatchPublisher<>(dispatcher, 2, TimeUnit.HOURS.toMillis(1),
+                batches::add);
+        publisher.add(1);
+        publisher.add(2);
+        publisher.add(3);
+        publisher.finish();
+        assertEquals(1, dispatcher.getPending());
+        runAll();
+        assertEquals(Collections.singletonList(Arrays.asList(1, 2, 3)), batches);
+
+        publisher.finish();
+        runAll();
+        assertEquals(1, batches.size());
+    }
+
+}
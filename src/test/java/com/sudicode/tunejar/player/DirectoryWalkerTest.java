@@ -0,0 +1,85 @@
+package com.sudicode.tunejar.player;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link DirectoryWalker} class.
+ */
+public class DirectoryWalkerTest {
+
+    private File tempDir;
+    private Scheduler scheduler;
+
+    @Before
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("DirectoryWalkerTest").toFile();
+        scheduler = new Scheduler(1, 4, 1);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        scheduler.shutdown();
+        FileUtils.deleteDirectory(tempDir);
+    }
+
+    /**
+     * Files should be visited in depth first, lexicographic order, one root after another, no matter how many threads
+     * list the directories.
+     */
+    @Test
+    public void testOrder() throws IOException, InterruptedException {
+        List<String> expected = new ArrayList<>();
+        for (String path : Arrays.asList("b/a.mp3", "b/b/c/d.m4a", "b/b/e.wav", "b/c.mp4", "b/d/f.mp3", "a/z.mp3")) {
+            File file = new File(tempDir, path);
+            FileUtils.touch(file);
+            expected.add(file.getAbsolutePath());
+        }
+        FileUtils.touch(new File(tempDir, "b/b/cover.jpg"));
+        FileUtils.touch(new File(tempDir, "a/mp3"));
+
+        List<File> roots = Arrays.asList(new File(tempDir, "b"), new File(tempDir, "missing"), new File(tempDir, "a"));
+        for (int parallelism = 1; parallelism <= 4; parallelism++) {
+            List<String> actual = new ArrayList<>();
+            new DirectoryWalker(scheduler.walk(), parallelism).walk(roots, file -> actual.add(file.getAbsolutePath()));
+            assertEquals(expected, actual);
+        }
+    }
+
+    /**
+     * A tiny buffer should hold listing back without changing the order, or stalling the walk.
+     */
+    @Test
+    public void testBufferSize() throws IOException, InterruptedException {
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            for (String path : Arrays.asList("a.mp3", "b/c.mp3", "b/d/e.mp3", "f.mp3")) {
+                File file = new File(tempDir, i + "/" + path);
+                FileUtils.touch(file);
+                expected.add(file.getAbsolutePath());
+            }
+        }
+
+        for (int parallelism = 1; parallelism <= 4; parallelism++) {
+            for (int bufferSize = 1; bufferSize <= 3; bufferSize++) {
+                List<String> actual = new ArrayList<>();
+                new DirectoryWalker(scheduler.walk(), parallelism, bufferSize).walk(Collections.singleton(tempDir),
+                        file -> actual.add(file.getAbsolutePath()));
+                assertEquals(expected, actual);
+            }
+        }
+    }
+
+}
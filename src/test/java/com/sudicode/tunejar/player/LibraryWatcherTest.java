@@ -0,0 +1,232 @@
+package com.sudicode.tunejar.player;
+
+import com.sudicode.tunejar.song.Song;
+import com.sudicode.tunejar.song.TagCache;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link LibraryWatcher} class.
+ */
+public class LibraryWatcherTest {
+
+    private static final long QUIET_PERIOD = 100;
+
+    private File tempDir;
+    private Scheduler scheduler;
+    private TagCache tagCache;
+    private LibraryWatcher watcher;
+    private final List<Song> library = new ArrayList<>();
+    private final List<List<Song>> changes = new ArrayList<>();
+    private final List<Set<String>> removals = new ArrayList<>();
+
+    /**
+     * Creates a small directory tree of (empty) WAV files, which are all known to the watcher and cached.
+     */
+    @Before
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("LibraryWatcherTest").toFile().getCanonicalFile();
+        tagCache = new TagCache(new File(tempDir, "tags.dat"));
+        File music = new File(tempDir, "music");
+        for (String dir : Arrays.asList("a", "b/c", "b/d")) {
+            for (int i = 0; i < 3; i++) {
+                File file = new File(music, String.format("%s/%02d.wav", dir, i));
+                FileUtils.touch(file);
+                library.add(tagCache.get(file));
+            }
+        }
+
+        scheduler = new Scheduler(1, 2, 1);
+        watcher = new LibraryWatcher(tagCache, () -> new DirectoryWalker(scheduler.walk(), 2), Runnable::run,
+                (changed, removed) -> {
+                    changes.add(changed);
+                    removals.add(removed);
+                }, QUIET_PERIOD, TimeUnit.HOURS.toMillis(1));
+        watcher.open();
+        watcher.reset(Collections.singleton(music), library);
+        watcher.runCommands();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        watcher.stop();
+        scheduler.shutdown();
+        FileUtils.deleteDirectory(tempDir);
+    }
+
+    private File file(String path) {
+        return new File(tempDir, "music/" + path);
+    }
+
+    private Path dir(String path) {
+        return file(path).toPath();
+    }
+
+    private static Set<String> names(List<Song> songs) {
+        Set<String> names = new TreeSet<>();
+        songs.forEach(s -> names.add(s.getAbsoluteFilename()));
+        return names;
+    }
+
+    private static Set<String> paths(File... files) {
+        Set<String> paths = new TreeSet<>();
+        for (File file : files) {
+            paths.add(file.getAbsolutePath());
+        }
+        return paths;
+    }
+
+    /**
+     * A burst of events should be applied as a single delta once the directories are quiet, or once it has been
+     * pending for too long.
+     */
+    @Test
+    public void testDebounce() throws Exception {
+        long now = System.currentTimeMillis();
+        FileUtils.touch(file("a/new.wav"));
+        FileUtils.touch(file("a/01.wav"));
+        FileUtils.touch(file("a/gone.wav"));
+        watcher.handle(dir("a"), Arrays.asList(
+                new Event<>(StandardWatchEventKinds.ENTRY_CREATE, Paths.get("new.wav")),
+                new Event<>(StandardWatchEventKinds.ENTRY_MODIFY, Paths.get("new.wav")),
+                new Event<>(StandardWatchEventKinds.ENTRY_CREATE, Paths.get("gone.wav")),
+                new Event<>(StandardWatchEventKinds.ENTRY_MODIFY, Paths.get("cover.jpg"))));
+        watcher.update(false, now);
+        assertTrue(changes.isEmpty());
+
+        assertTrue(file("a/gone.wav").delete());
+        watcher.handle(dir("a"), Arrays.asList(
+                new Event<>(StandardWatchEventKinds.ENTRY_MODIFY, Paths.get("01.wav")),
+                new Event<>(StandardWatchEventKinds.ENTRY_DELETE, Paths.get("gone.wav"))));
+        watcher.update(false, now + QUIET_PERIOD);
+        assertTrue(changes.isEmpty());
+
+        watcher.update(true, now + 2 * QUIET_PERIOD);
+        assertEquals(1, changes.size());
+        assertEquals(paths(file("a/01.wav"), file("a/new.wav")), names(changes.get(0)));
+        assertEquals(paths(file("a/gone.wav")), removals.get(0));
+
+        // Nothing left to apply.
+        watcher.update(true, now + 3 * QUIET_PERIOD);
+        assertEquals(1, changes.size());
+
+        // A steady stream of events should not hold changes back forever.
+        now += 10 * QUIET_PERIOD;
+        for (int i = 0; i <= 10; i++, now += QUIET_PERIOD) {
+            watcher.handle(dir("a"), Collections.singletonList(
+                    new Event<>(StandardWatchEventKinds.ENTRY_MODIFY, Paths.get("02.wav"))));
+            watcher.update(false, now);
+        }
+        assertEquals(1, changes.size());
+        watcher.handle(dir("a"), Collections.singletonList(
+                new Event<>(StandardWatchEventKinds.ENTRY_MODIFY, Paths.get("02.wav"))));
+        watcher.update(false, now);
+        assertEquals(2, changes.size());
+        assertEquals(paths(file("a/02.wav")), names(changes.get(1)));
+        assertTrue(removals.get(1).isEmpty());
+    }
+
+    /**
+     * Deleting a directory should remove every song inside of it, and forget about them.
+     */
+    @Test
+    public void testDeleteDirectory() throws Exception {
+        long now = System.currentTimeMillis();
+        FileUtils.deleteDirectory(file("b/c"));
+        watcher.handle(dir("b"), Collections.singletonList(
+                new Event<>(StandardWatchEventKinds.ENTRY_DELETE, Paths.get("c"))));
+        watcher.update(true, now);
+        assertEquals(1, changes.size());
+        assertTrue(changes.get(0).isEmpty());
+        assertEquals(paths(file("b/c")), removals.get(0));
+
+        // Reconciling should find nothing else to do, since the songs inside of the directory were forgotten.
+        watcher.handle(null, Collections.singletonList(new Event<>(StandardWatchEventKinds.OVERFLOW, null)));
+        watcher.update(true, now + QUIET_PERIOD);
+        watcher.update(true, now + 2 * QUIET_PERIOD);
+        assertEquals(1, changes.size());
+
+        // Recreating a file inside of it should add it again.
+        FileUtils.touch(file("b/c/00.wav"));
+        watcher.handle(dir("b"), Collections.singletonList(
+                new Event<>(StandardWatchEventKinds.ENTRY_CREATE, Paths.get("c"))));
+        watcher.update(true, now + 3 * QUIET_PERIOD);
+        assertEquals(2, changes.size());
+        assertEquals(paths(file("b/c/00.wav")), names(changes.get(1)));
+    }
+
+    /**
+     * An overflow should reconcile the directories against the library, picking up the changes which were missed.
+     */
+    @Test
+    public void testOverflow() throws Exception {
+        long now = System.currentTimeMillis();
+        FileUtils.touch(file("b/d/new.wav"));
+        assertTrue(file("a/01.wav").delete());
+        watcher.update(true, now);
+        watcher.update(true, now + QUIET_PERIOD);
+        assertTrue(changes.isEmpty());
+
+        watcher.handle(null, Collections.singletonList(new Event<>(StandardWatchEventKinds.OVERFLOW, null)));
+        watcher.update(true, now + 2 * QUIET_PERIOD);
+        assertTrue(changes.isEmpty());
+        watcher.update(true, now + 3 * QUIET_PERIOD);
+        assertEquals(1, changes.size());
+        assertEquals(paths(file("b/d/new.wav")), names(changes.get(0)));
+        assertEquals(paths(file("a/01.wav")), removals.get(0));
+
+        // The next reconciliation is not due for a while.
+        FileUtils.touch(file("a/01.wav"));
+        watcher.update(true, now + 4 * QUIET_PERIOD);
+        assertEquals(1, changes.size());
+    }
+
+    /**
+     * A {@link WatchEvent} which is built by the test, rather than reported by a watch service.
+     */
+    private static final class Event<T> implements WatchEvent<T> {
+
+        private final Kind<T> kind;
+        private final T context;
+
+        Event(Kind<T> kind, T context) {
+            this.kind = kind;
+            this.context = context;
+        }
+
+        @Override
+        public Kind<T> kind() {
+            return kind;
+        }
+
+        @Override
+        public int count() {
+            return 1;
+        }
+
+        @Override
+        public T context() {
+            return context;
+        }
+    }
+
+}
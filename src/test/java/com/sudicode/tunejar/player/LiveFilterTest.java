@@ -0,0 +1,145 @@
+package com.sudicode.tunejar.player;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link LiveFilter} class.
+ */
+public class LiveFilterTest {
+
+    private ScheduledExecutorService timer;
+    private ExecutorService matchers;
+    private List<String> matched;
+    private BlockingQueue<Optional<Predicate<String>>> published;
+
+    @Before
+    public void setUp() {
+        timer = Executors.newSingleThreadScheduledExecutor();
+        matchers = Executors.newSingleThreadExecutor();
+        matched = new CopyOnWriteArrayList<>();
+        published = new LinkedBlockingQueue<>();
+    }
+
+    @After
+    public void tearDown() {
+        timer.shutdownNow();
+        matchers.shutdownNow();
+    }
+
+    private LiveFilter<String> newFilter(long delay) {
+        return new LiveFilter<>(timer, matchers, Runnable::run, delay, query -> {
+            matched.add(query);
+            return s -> s.contains(query);
+        }, predicate -> published.add(Optional.ofNullable(predicate)));
+    }
+
+    /**
+     * A burst of keystrokes should only match the query which the user paused on.
+     */
+    @Test
+    public void testDebounce() throws Exception {
+        LiveFilter<String> filter = newFilter(100);
+        filter.update("d");
+        filter.update("da");
+        filter.update(" daft ");
+
+        Optional<Predicate<String>> predicate = published.poll(1, TimeUnit.SECONDS);
+        assertNotNull(predicate);
+        assertTrue(predicate.get().test("daft punk"));
+        assertFalse(predicate.get().test("discovery"));
+        assertSame(predicate.get(), filter.getPredicate());
+        assertNull(published.poll(200, TimeUnit.MILLISECONDS));
+        assertEquals(1, matched.size());
+        assertEquals("daft", matched.get(0));
+    }
+
+    /**
+     * The result of a query which has since been replaced should never be published, and a slow match should not hold
+     * up the timer.
+     */
+    @Test
+    public void testStale() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        LiveFilter<String> filter = new LiveFilter<>(timer, matchers, Runnable::run, 0, query -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return s -> s.contains(query);
+        }, predicate -> published.add(Optional.ofNullable(predicate)));
+
+        filter.update("slow");
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        assertTrue(timer.schedule(() -> true, 0, TimeUnit.MILLISECONDS).get(1, TimeUnit.SECONDS));
+        filter.update("fast");
+        release.countDown();
+
+        Optional<Predicate<String>> predicate = published.poll(1, TimeUnit.SECONDS);
+        assertNotNull(predicate);
+        assertTrue(predicate.get().test("fast"));
+        assertFalse(predicate.get().test("slow"));
+        assertNull(published.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Clearing the query should show every item right away, and cancel any pending match.
+     */
+    @Test
+    public void testClear() throws Exception {
+        LiveFilter<String> filter = newFilter(100);
+        filter.update("daft");
+        filter.update("  ");
+
+        Optional<Predicate<String>> predicate = published.poll();
+        assertNotNull(predicate);
+        assertFalse(predicate.isPresent());
+        assertNull(filter.getPredicate());
+        assertNull(published.poll(300, TimeUnit.MILLISECONDS));
+        assertTrue(matched.isEmpty());
+    }
+
+    /**
+     * Refreshing should match the current query again, so that items added since are not hidden, and do nothing
+     * while every item is shown.
+     */
+    @Test
+    public void testRefresh() throws Exception {
+        LiveFilter<String> filter = newFilter(0);
+        filter.refresh();
+        assertNull(published.poll(200, TimeUnit.MILLISECONDS));
+
+        filter.update("daft");
+        assertNotNull(published.poll(1, TimeUnit.SECONDS));
+        filter.refresh();
+        Optional<Predicate<String>> predicate = published.poll(1, TimeUnit.SECONDS);
+        assertNotNull(predicate);
+        assertTrue(predicate.get().test("daft punk"));
+        assertEquals(2, matched.size());
+
+        filter.update("");
+        assertNotNull(published.poll(1, TimeUnit.SECONDS));
+        filter.refresh();
+        assertNull(published.poll(200, TimeUnit.MILLISECONDS));
+        assertEquals(2, matched.size());
+    }
+
+}
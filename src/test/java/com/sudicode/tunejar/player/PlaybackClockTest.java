@@ -0,0 +1,83 @@
+package com.sudicode.tunejar.player;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link PlaybackClock} class.
+ */
+public class PlaybackClockTest {
+
+    private final List<String> currentTimes = new ArrayList<>();
+    private final List<String> totalDurations = new ArrayList<>();
+    private final List<Double> progresses = new ArrayList<>();
+    private double width;
+    private PlaybackClock clock;
+
+    @Before
+    public void setUp() {
+        width = 200;
+        clock = new PlaybackClock(currentTimes::add, totalDurations::add, progresses::add, () -> width);
+    }
+
+    /**
+     * Times should be formatted as minutes and seconds.
+     */
+    @Test
+    public void testFormat() {
+        char[] buffer = new char[24];
+        assertEquals("0:00", new String(buffer, 0, PlaybackClock.format(0, buffer)));
+        assertEquals("0:09", new String(buffer, 0, PlaybackClock.format(9, buffer)));
+        assertEquals("1:05", new String(buffer, 0, PlaybackClock.format(65, buffer)));
+        assertEquals("59:59", new String(buffer, 0, PlaybackClock.format(3599, buffer)));
+        assertEquals("125:00", new String(buffer, 0, PlaybackClock.format(7500, buffer)));
+        assertEquals(Long.MAX_VALUE / 60 + ":07", new String(buffer, 0, PlaybackClock.format(Long.MAX_VALUE, buffer)));
+    }
+
+    /**
+     * The controls should only be touched when what they show changes.
+     */
+    @Test
+    public void testThrottle() {
+        for (int tick = 0; tick <= 2000; tick++) {
+            clock.update(tick * 0.1, 200);
+        }
+        assertEquals(201, currentTimes.size());
+        assertEquals("0:00", currentTimes.get(0));
+        assertEquals("3:20", currentTimes.get(200));
+        assertEquals(Arrays.asList("3:20"), totalDurations);
+        assertEquals(201, progresses.size());
+        assertEquals(0, progresses.get(0), 0);
+        assertEquals(0.5, progresses.get(100), 1e-9);
+        assertEquals(1, progresses.get(200), 0);
+
+        // A narrower seek bar moves less often.
+        clock.reset();
+        progresses.clear();
+        width = 10;
+        for (int tick = 0; tick <= 2000; tick++) {
+            clock.update(tick * 0.1, 200);
+        }
+        assertEquals(11, progresses.size());
+    }
+
+    /**
+     * A duration which is not known yet should show as zero, until it is.
+     */
+    @Test
+    public void testUnknownDuration() {
+        clock.update(0, Double.NaN);
+        clock.update(0.5, Double.NaN);
+        clock.update(1, 61);
+        assertEquals(Arrays.asList("0:00", "0:01"), currentTimes);
+        assertEquals(Arrays.asList("0:00", "1:01"), totalDurations);
+        assertEquals(Arrays.asList(0.0, 3.0 / 200), progresses);
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.sudicode.tunejar.player;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link PlayerController} class.
+ */
+public class PlayerControllerTest {
+
+    /**
+     * A list which counts how many times items were inserted into it.
+     */
+    private static final class CountingList extends ArrayList<String> {
+
+        private int inserts;
+
+        CountingList(Collection<String> items) {
+            super(items);
+        }
+
+        @Override
+        public boolean addAll(int index, Collection<? extends String> items) {
+            inserts++;
+            return super.addAll(index, items);
+        }
+    }
+
+    /**
+     * Merged items should go after the equal elements already in the list, and each run of items should be inserted
+     * at once.
+     */
+    @Test
+    public void testMerge() {
+        CountingList sorted = new CountingList(Arrays.asList("a", "B", "d"));
+        PlayerController.merge(sorted, Arrays.asList("b", "c", "A", "C"), String.CASE_INSENSITIVE_ORDER);
+        assertEquals(Arrays.asList("a", "A", "B", "b", "c", "C", "d"), sorted);
+        assertEquals(2, sorted.inserts);
+    }
+
+    /**
+     * Items which are greater than every element should be appended in a single insert.
+     */
+    @Test
+    public void testMergeAtEnd() {
+        CountingList sorted = new CountingList(Arrays.asList("a", "b"));
+        PlayerController.merge(sorted, Arrays.asList("z", "b", "y"), Comparator.naturalOrder());
+        assertEquals(Arrays.asList("a", "b", "b", "y", "z"), sorted);
+        assertEquals(1, sorted.inserts);
+    }
+
+    /**
+     * Merging into an empty list should sort the items, and merging nothing should leave the list alone.
+     */
+    @Test
+    public void testMergeEmpty() {
+        CountingList sorted = new CountingList(Collections.emptyList());
+        PlayerController.merge(sorted, Arrays.asList("c", "a", "b", "a"), Comparator.naturalOrder());
+        assertEquals(Arrays.asList("a", "a", "b", "c"), sorted);
+        assertEquals(1, sorted.inserts);
+
+        PlayerController.merge(sorted, Collections.emptyList(), Comparator.naturalOrder());
+        assertEquals(Arrays.asList("a", "a", "b", "c"), sorted);
+        assertEquals(1, sorted.inserts);
+    }
+
+    /**
+     * Each row of a sorted view should map to the same occurrence of its element in the list.
+     */
+    @Test
+    public void testPositionsOf() {
+        List<String> list = Arrays.asList("a", "b", "a", "c", "a");
+        List<String> view = new ArrayList<>(list);
+        view.sort(Comparator.naturalOrder()); // a, a, a, b, c
+
+        assertArrayEquals(new int[] {1, 2}, PlayerController.positionsOf(view, new int[] {1, 3}, list));
+        assertArrayEquals(new int[] {0, 2, 4}, PlayerController.positionsOf(view, new int[] {0, 1, 2}, list));
+        assertArrayEquals(new int[] {3, 4}, PlayerController.positionsOf(view, new int[] {2, 4}, list));
+        assertArrayEquals(new int[0], PlayerController.positionsOf(view, new int[0], list));
+    }
+
+}
@@ -0,0 +1,131 @@
+package com.sudicode.tunejar.player;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link RefreshCoordinator} class.
+ */
+public class RefreshCoordinatorTest {
+
+    private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+    private ExecutorService executor;
+
+    @After
+    public void tearDown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Requests made while a refresh is in flight should cancel it once, and be coalesced into a single new refresh.
+     */
+    @Test
+    public void testCoalesce() {
+        Queue<Runnable> background = new ArrayDeque<>();
+        Queue<Runnable> fxQueue = new ArrayDeque<>();
+        List<FutureTask<?>> tasks = new ArrayList<>();
+        RefreshCoordinator coordinator = new RefreshCoordinator(() -> {
+            int n = tasks.size() + 1;
+            FutureTask<?> task = new FutureTask<>(() -> events.add("refresh " + n), null);
+            tasks.add(task);
+            return task;
+        }, background::add, fxQueue::add);
+
+        coordinator.request();
+        assertTrue(coordinator.isRunning());
+        coordinator.request();
+        coordinator.request();
+        coordinator.request();
+        assertEquals(1, tasks.size());
+        assertTrue(tasks.get(0).isCancelled());
+
+        // The new refresh starts once the cancelled one has returned.
+        background.remove().run();
+        assertEquals(1, tasks.size());
+        fxQueue.remove().run();
+        assertEquals(2, tasks.size());
+        assertFalse(tasks.get(1).isCancelled());
+        background.remove().run();
+        fxQueue.remove().run();
+        assertFalse(coordinator.isRunning());
+        assertTrue(background.isEmpty());
+        assertEquals(Collections.singletonList("refresh 2"), events);
+
+        // Once closed, the refresh in flight is cancelled and no new one starts.
+        coordinator.request();
+        coordinator.close();
+        coordinator.request();
+        background.remove().run();
+        fxQueue.remove().run();
+        assertEquals(3, tasks.size());
+        assertTrue(tasks.get(2).isCancelled());
+        assertFalse(coordinator.isRunning());
+        assertTrue(background.isEmpty());
+    }
+
+    /**
+     * A cancelled refresh which is still winding down should return before the next one starts.
+     */
+    @Test(timeout = 30000)
+    public void testCancelThenRestart() throws InterruptedException {
+        executor = Executors.newCachedThreadPool();
+        BlockingQueue<Runnable> fxQueue = new LinkedBlockingQueue<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<FutureTask<?>> tasks = new ArrayList<>();
+        RefreshCoordinator coordinator = new RefreshCoordinator(() -> {
+            int n = tasks.size() + 1;
+            FutureTask<?> task = new FutureTask<>(() -> {
+                events.add("start " + n);
+                if (n == 1) {
+                    started.countDown();
+                    // Ignore the interrupt, like a refresh which is in the middle of something that cannot stop.
+                    boolean done = false;
+                    while (!done) {
+                        try {
+                            done = release.await(30, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            events.add("interrupted " + n);
+                        }
+                    }
+                }
+                events.add("end " + n);
+            }, null);
+            tasks.add(task);
+            return task;
+        }, executor, fxQueue::add);
+
+        coordinator.request();
+        started.await();
+        coordinator.request();
+        assertTrue(tasks.get(0).isDone());
+        assertNull(fxQueue.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals(1, tasks.size());
+
+        release.countDown();
+        fxQueue.take().run();
+        assertEquals(2, tasks.size());
+        fxQueue.take().run();
+        assertFalse(coordinator.isRunning());
+        assertEquals(Arrays.asList("start 1", "interrupted 1", "end 1", "start 2", "end 2"), events);
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.sudicode.tunejar.player;
+
+import com.sudicode.tunejar.song.Song;
+import com.sudicode.tunejar.song.SongFactory;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link ScanPipeline} class.
+ */
+public class ScanPipelineTest {
+
+    private File tempDir;
+    private Scheduler scheduler;
+    private final List<String> expected = new ArrayList<>();
+
+    /**
+     * Creates a small directory tree of (empty) WAV files, which can be turned into songs without any parsing.
+     */
+    @Before
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("ScanPipelineTest").toFile();
+        for (String dir : Arrays.asList("a", "b/c", "b/d")) {
+            for (int i = 0; i < 50; i++) {
+                File file = new File(tempDir, String.format("%s/%02d.wav", dir, i));
+                FileUtils.touch(file);
+                expected.add(file.getAbsolutePath());
+            }
+        }
+        FileUtils.touch(new File(tempDir, "a/cover.jpg"));
+        Collections.sort(expected);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+        FileUtils.deleteDirectory(tempDir);
+    }
+
+    /**
+     * Every supported file should be collected exactly once, in lexicographic order, even with tiny queues.
+     */
+    @Test
+    public void testOrder() throws InterruptedException {
+        scheduler = new Scheduler(2, 4, 4);
+        ScanPipeline pipeline = new ScanPipeline(scheduler, 3, 2, SongFactory::create);
+        List<String> actual = new ArrayList<>();
+        pipeline.run(Collections.singleton(tempDir), s -> actual.add(s.getAbsoluteFilename()));
+
+        assertEquals(expected, actual);
+        assertEquals(expected.size(), pipeline.getWalked());
+        assertEquals(expected.size(), pipeline.getParsed());
+        assertEquals(0, pipeline.getFailed());
+    }
+
+    /**
+     * Files which fail to parse should be counted and skipped, without stalling the pipeline.
+     */
+    @Test
+    public void testFailures() throws InterruptedException {
+        scheduler = new Scheduler(2, 4, 3);
+        ScanPipeline pipeline = new ScanPipeline(scheduler, 2, 4, file -> {
+            if (file.getName().startsWith("1")) {
+                throw new IllegalArgumentException("Simulated failure");
+            }
+            return SongFactory.create(file);
+        });
+        List<Song> songs = new ArrayList<>();
+        pipeline.run(Collections.singleton(tempDir), songs::add);
+
+        assertEquals(120, songs.size());
+        assertEquals(30, pipeline.getFailed());
+        assertEquals(150, pipeline.getWalked());
+    }
+
+    /**
+     * An error should stop the parser which hit it, but the other parsers should still finish the scan.
+     */
+    @Test(timeout = 30000)
+    public void testError() throws InterruptedException {
+        scheduler = new Scheduler(2, 4, 3);
+        ScanPipeline pipeline = new ScanPipeline(scheduler, 2, 4, file -> {
+            if (file.equals(new File(tempDir, "a/05.wav"))) {
+                throw new StackOverflowError("Simulated error");
+            }
+            return SongFactory.create(file);
+        });
+        List<Song> songs = new ArrayList<>();
+        pipeline.run(Collections.singleton(tempDir), songs::add);
+
+        assertEquals(149, songs.size());
+        assertEquals(1, pipeline.getFailed());
+        assertEquals(150, pipeline.getWalked());
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.sudicode.tunejar.player;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link Scheduler} class.
+ */
+public class SchedulerTest {
+
+    private Scheduler scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = new Scheduler(2, 2, 3);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * Threads should be named after their pool, and no pool should grow past its limit.
+     */
+    @Test
+    public void testBounded() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 10; i++) {
+            scheduler.parse().submit(() -> {
+                release.await();
+                return null;
+            });
+        }
+        Future<String> parseName = scheduler.parse().submit(() -> Thread.currentThread().getName());
+        assertEquals(3, scheduler.getThreadCount());
+        release.countDown();
+        assertTrue(parseName.get(1, TimeUnit.SECONDS).startsWith("parse-"));
+
+        Future<String> taskName = scheduler.tasks().submit(() -> Thread.currentThread().getName());
+        assertTrue(taskName.get(1, TimeUnit.SECONDS).startsWith("task-"));
+        assertTrue(scheduler.getThreadCount() <= 2 + 2 + 3 + 1);
+    }
+
+    /**
+     * Shutting down should interrupt running jobs, so that nothing is leaked across restarts.
+     */
+    @Test
+    public void testShutdown() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        scheduler.tasks().submit(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        scheduler.shutdown();
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+        assertTrue(scheduler.isShutdown());
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.sudicode.tunejar.player;
+
+import com.sudicode.tunejar.song.Song;
+import com.sudicode.tunejar.song.SongFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link TrackPreloader} class.
+ */
+public class TrackPreloaderTest {
+
+    private final Queue<Runnable> background = new ArrayDeque<>();
+    private final Queue<Runnable> fxQueue = new ArrayDeque<>();
+    private final List<String> loaded = new ArrayList<>();
+    private final List<String> disposed = new ArrayList<>();
+    private TrackPreloader<String> preloader;
+
+    private Song a;
+    private Song b;
+
+    @Before
+    public void setUp() {
+        preloader = new TrackPreloader<>(background::add, fxQueue::add, song -> {
+            String player = "player for " + song.getTitle();
+            loaded.add(player);
+            return player;
+        }, disposed::add);
+        a = SongFactory.create(new File("a.mp3"), "A", "", "");
+        b = SongFactory.create(new File("b.mp3"), "B", "", "");
+    }
+
+    private void runAll() {
+        while (!background.isEmpty() || !fxQueue.isEmpty()) {
+            if (!background.isEmpty()) {
+                background.remove().run();
+            } else {
+                fxQueue.remove().run();
+            }
+        }
+    }
+
+    /**
+     * The expected song should be handed its preloaded player exactly once.
+     */
+    @Test
+    public void testTake() {
+        preloader.preload(a);
+        preloader.preload(a);
+        assertSame(a, preloader.getSong());
+        assertFalse(preloader.isLoaded());
+        assertNull(preloader.take(b));
+        assertNull(preloader.getSong());
+
+        preloader.preload(a);
+        runAll();
+        assertTrue(preloader.isLoaded());
+        assertEquals("player for A", preloader.take(a));
+        assertNull(preloader.take(a));
+        assertEquals(Arrays.asList("player for A", "player for A"), loaded);
+        assertEquals(Arrays.asList("player for A"), disposed);
+    }
+
+    /**
+     * Players which will not be used should be disposed, including those which arrive late.
+     */
+    @Test
+    public void testDispose() {
+        preloader.preload(a);
+        runAll();
+        preloader.preload(b);
+        assertEquals(Arrays.asList("player for A"), disposed);
+
+        // B arrives after it stopped being expected.
+        background.remove().run();
+        preloader.preload(null);
+        runAll();
+        assertEquals(Arrays.asList("player for A", "player for B"), disposed);
+        assertFalse(preloader.isLoaded());
+
+        // A song which was not expected disposes the preloaded one.
+        preloader.preload(a);
+        runAll();
+        assertNull(preloader.take(b));
+        assertEquals(Arrays.asList("player for A", "player for B", "player for A"), disposed);
+    }
+
+    /**
+     * A song which fails to load should simply not be preloaded.
+     */
+    @Test
+    public void testFailure() {
+        TrackPreloader<String> failing = new TrackPreloader<>(background::add, fxQueue::add, song -> {
+            throw new IllegalStateException("Expected by the test");
+        }, disposed::add);
+        failing.preload(a);
+        runAll();
+        assertFalse(failing.isLoaded());
+        assertNull(failing.take(a));
+        assertTrue(disposed.isEmpty());
+    }
+
+}
@@ -0,0 +1,106 @@
+package com.sudicode.tunejar.player;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link UiDispatcher} class.
+ */
+public class UiDispatcherTest {
+
+    private ScheduledExecutorService executor;
+    private BlockingQueue<Runnable> fxQueue;
+    private List<String> applied;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        fxQueue = new LinkedBlockingQueue<>();
+        applied = new CopyOnWriteArrayList<>();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private UiDispatcher newDispatcher(long frame) {
+        return new UiDispatcher(executor, fxQueue::add, frame);
+    }
+
+    /**
+     * A burst of updates should queue a single flush, which applies only the latest update for each target.
+     */
+    @Test
+    public void testCoalesce() throws Exception {
+        UiDispatcher dispatcher = newDispatcher(0);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < 1000; i++) {
+                String status = "status " + i;
+                String progress = "progress " + i;
+                dispatcher.post("status", () -> applied.add(status));
+                dispatcher.post("progress", () -> applied.add(progress));
+            }
+        });
+        producer.start();
+        producer.join();
+
+        assertEquals(2, dispatcher.getPending());
+        fxQueue.take().run();
+        assertTrue(fxQueue.isEmpty());
+        assertEquals(Arrays.asList("status 999", "progress 999"), applied);
+        assertEquals(0, dispatcher.getPending());
+    }
+
+    /**
+     * Flushes should be at least a frame apart.
+     */
+    @Test
+    public void testFrame() throws Exception {
+        UiDispatcher dispatcher = newDispatcher(200);
+        long begin = System.nanoTime();
+        dispatcher.post("status", () -> applied.add("a"));
+        Runnable flush = fxQueue.poll(1, TimeUnit.SECONDS);
+        assertNotNull(flush);
+        flush.run();
+
+        dispatcher.post("status", () -> applied.add("b"));
+        assertNull(fxQueue.poll(100, TimeUnit.MILLISECONDS));
+        flush = fxQueue.poll(1, TimeUnit.SECONDS);
+        assertNotNull(flush);
+        flush.run();
+        assertTrue(System.nanoTime() - begin >= TimeUnit.MILLISECONDS.toNanos(200));
+        assertEquals(Arrays.asList("a", "b"), applied);
+    }
+
+    /**
+     * An update which fails should not keep the others from being applied.
+     */
+    @Test
+    public void testFailure() throws Exception {
+        UiDispatcher dispatcher = newDispatcher(0);
+        dispatcher.post("status", () -> {
+            throw new IllegalStateException("Expected by the test");
+        });
+        dispatcher.post("progress", () -> applied.add("progress"));
+        fxQueue.take().run();
+        assertEquals(Arrays.asList("progress"), applied);
+
+        dispatcher.post("status", () -> applied.add("status"));
+        fxQueue.take().run();
+        assertEquals(Arrays.asList("progress", "status"), applied);
+    }
+
+}
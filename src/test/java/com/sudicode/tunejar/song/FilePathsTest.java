@@ -0,0 +1,29 @@
+package com.sudicode.tunejar.song;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link FilePaths} class.
+ */
+public class FilePathsTest {
+
+    /**
+     * A path should be within itself and its parent directories, but not within a sibling which shares its prefix.
+     */
+    @Test
+    public void testIsWithin() {
+        String dir = new File("music").getAbsolutePath();
+        String file = new File(dir, "a.mp3").getAbsolutePath();
+        assertTrue(FilePaths.isWithin(file, Collections.singleton(file)));
+        assertTrue(FilePaths.isWithin(file, Collections.singleton(dir)));
+        assertFalse(FilePaths.isWithin(file, Collections.singleton(dir + "2")));
+        assertFalse(FilePaths.isWithin(dir, Collections.singleton(file)));
+        assertFalse(FilePaths.isWithin(file, Collections.emptySet()));
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.sudicode.tunejar.song;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link FuzzyMatcher} class.
+ */
+public class FuzzyMatcherTest {
+
+    /**
+     * Typical typos should each cost one edit.
+     */
+    @Test
+    public void testDistance() {
+        assertEquals(0, new FuzzyMatcher("beatles").distance("the beatles", 2));
+        assertEquals(1, new FuzzyMatcher("beetles").distance("the beatles", 2));
+        assertEquals(1, new FuzzyMatcher("lvoe").distance("love me do", 2));
+        assertEquals(1, new FuzzyMatcher("yesterdy").distance("yesterday", 2));
+        assertEquals(1, new FuzzyMatcher("yessterday").distance("yesterday", 2));
+        assertEquals(1, new FuzzyMatcher("caf\u00e8").distance("caf\u00e9 del mar", 2));
+        assertEquals(3, new FuzzyMatcher("xyz").distance("abc", 5));
+        assertEquals(2, new FuzzyMatcher("xyz").distance("abc", 1));
+        assertEquals(2, new FuzzyMatcher("thriller").distance("", 1));
+    }
+
+    /**
+     * The distance should agree with the textbook dynamic programming algorithm, on random strings and patterns of
+     * every length up to the maximum.
+     */
+    @Test
+    public void testAgainstTable() {
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            String pattern = randomString(random, 1 + random.nextInt(FuzzyMatcher.MAX_LENGTH));
+            String text = random.nextBoolean() ? randomString(random, random.nextInt(80))
+                    : mutate(random, randomString(random, random.nextInt(10)) + pattern);
+            int expected = distance(pattern, text);
+            assertEquals(pattern + " in " + text, expected, new FuzzyMatcher(pattern).distance(text, 70));
+            assertEquals(Math.min(expected, 3), new FuzzyMatcher(pattern).distance(text, 2));
+        }
+    }
+
+    private static String randomString(Random random, int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append(random.nextInt(10) == 0 ? '\u00e9' : (char) ('a' + random.nextInt(4)));
+        }
+        return sb.toString();
+    }
+
+    private static String mutate(Random random, String s) {
+        StringBuilder sb = new StringBuilder(s);
+        for (int i = random.nextInt(4); i > 0 && sb.length() > 1; i--) {
+            int at = random.nextInt(sb.length() - 1);
+            switch (random.nextInt(4)) {
+                case 0:
+                    sb.deleteCharAt(at);
+                    break;
+                case 1:
+                    sb.insert(at, 'b');
+                    break;
+                case 2:
+                    sb.setCharAt(at, 'c');
+                    break;
+                default:
+                    char c = sb.charAt(at);
+                    sb.setCharAt(at, sb.charAt(at + 1));
+                    sb.setCharAt(at + 1, c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Smallest restricted Damerau-Levenshtein distance between the pattern and any substring of the text.
+     */
+    private static int distance(String pattern, String text) {
+        int m = pattern.length();
+        int n = text.length();
+        int[][] d = new int[m + 1][n + 1];
+        for (int i = 0; i <= m; i++) {
+            d[i][0] = i;
+        }
+        for (int i = 1; i <= m; i++) {
+            for (int j = 1; j <= n; j++) {
+                int cost = pattern.charAt(i - 1) == text.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && pattern.charAt(i - 1) == text.charAt(j - 2)
+                        && pattern.charAt(i - 2) == text.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+            }
+        }
+        int best = m;
+        for (int j = 0; j <= n; j++) {
+            best = Math.min(best, d[m][j]);
+        }
+        return best;
+    }
+
+}
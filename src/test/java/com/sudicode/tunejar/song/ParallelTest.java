@@ -0,0 +1,87 @@
+package com.sudicode.tunejar.song;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link Parallel} class.
+ */
+public class ParallelTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static List<Integer> range(int n) {
+        List<Integer> list = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            list.add(i);
+        }
+        return list;
+    }
+
+    /**
+     * Every item should land in exactly one chunk, no chunk should be empty, and the chunks should come back in order.
+     */
+    @Test
+    public void testChunks() {
+        for (int n = 0; n <= 10; n++) {
+            for (int parallelism = 1; parallelism <= 4; parallelism++) {
+                List<Integer> items = range(n);
+                List<List<Integer>> chunks = Parallel.map(items, executor, parallelism, ArrayList::new);
+                assertTrue(chunks.size() <= parallelism);
+                List<Integer> joined = new ArrayList<>();
+                for (List<Integer> chunk : chunks) {
+                    assertTrue(n == 0 || !chunk.isEmpty());
+                    joined.addAll(chunk);
+                }
+                assertEquals(items, joined);
+            }
+        }
+    }
+
+    /**
+     * The calling thread should run every chunk itself if the executor never gets around to it.
+     */
+    @Test
+    public void testBusyExecutor() {
+        List<Runnable> queued = new ArrayList<>();
+        List<Integer> sums = Parallel.map(range(9), queued::add, 3, chunk -> chunk.stream().mapToInt(i -> i).sum());
+        assertEquals(Arrays.asList(3, 12, 21), sums);
+        assertEquals(2, queued.size());
+
+        // The helpers find nothing left to do.
+        queued.forEach(Runnable::run);
+    }
+
+    /**
+     * A failure in any chunk should be rethrown to the caller.
+     */
+    @Test
+    public void testFailure() {
+        try {
+            Parallel.map(range(8), executor, 4, chunk -> {
+                if (chunk.contains(5)) {
+                    throw new IllegalStateException("Expected by the test");
+                }
+                return Collections.emptyList();
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("Expected by the test", e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,197 @@
+package com.sudicode.tunejar.song;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link SearchIndex} class.
+ */
+public class SearchIndexTest {
+
+    private final SearchIndex index = new SearchIndex();
+
+    private static Song song(String name, String title, String artist, String album) {
+        return SongFactory.create(new File(name + ".mp3"), title, artist, album);
+    }
+
+    /**
+     * Matches should be case insensitive, and report the field with the highest priority.
+     */
+    @Test
+    public void testSearch() {
+        Song yesterday = song("a", "Yesterday", "The Beatles", "Help!");
+        Song help = song("b", "Help!", "The Beatles", "Help!");
+        Song other = song("c", "Beat It", "Michael Jackson", "Thriller");
+        Song untitled = song("untitled", "", "", "");
+        index.add(yesterday);
+        index.add(help);
+        index.add(other);
+        index.add(untitled);
+
+        Map<Song, SearchIndex.Field> matches = index.search("HELP");
+        assertEquals(2, matches.size());
+        assertEquals(SearchIndex.Field.ALBUM, matches.get(yesterday));
+        assertEquals(SearchIndex.Field.TITLE, matches.get(help));
+
+        assertEquals(SearchIndex.Field.ARTIST, index.search("beatles").get(yesterday));
+        assertEquals(3, index.search("beat").size());
+        assertEquals(3, index.search("t").size() - 1); // The title of the untitled song is its file name
+        assertEquals(SearchIndex.Field.TITLE, index.search("untitled.mp3").get(untitled));
+        assertTrue(index.search("beatles help").isEmpty());
+        assertTrue(index.search("").isEmpty());
+    }
+
+    /**
+     * Removed and edited songs should no longer match, and the index should survive being rebuilt.
+     */
+    @Test
+    public void testRemoveAndUpdate() {
+        List<Song> songs = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            Song s = song("song" + i, "Title " + i, "Artist " + (i % 10), "Album " + (i % 100));
+            songs.add(s);
+            index.add(s);
+        }
+        assertEquals(500, index.search("artist 3").size());
+
+        Song replaced = songs.get(3);
+        Song replacement = song("song3", "Renamed", "Nobody", "Nothing");
+        index.replace(replaced, replacement);
+        assertEquals(499, index.search("artist 3").size());
+        assertTrue(index.search("renamed").containsKey(replacement));
+
+        for (int i = 0; i < 3000; i++) {
+            index.remove(songs.get(i));
+        }
+        assertEquals(2001, index.size());
+        assertEquals(200, index.search("artist 3").size());
+        assertEquals(1, index.search("title 4999").size());
+        assertFalse(index.search("title 42").containsKey(songs.get(42)));
+    }
+
+    /**
+     * The index should agree with a plain scan on random data.
+     */
+    @Test
+    public void testAgainstScan() {
+        Random random = new Random(42);
+        List<Song> songs = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Song s = song("s" + i, randomWord(random), randomWord(random), randomWord(random));
+            songs.add(s);
+            index.add(s);
+        }
+        for (int q = 0; q < 200; q++) {
+            String query = randomWord(random).substring(0, 1 + random.nextInt(4));
+            String lower = query.toLowerCase();
+            Set<Song> expected = new HashSet<>();
+            for (Song s : songs) {
+                if ((s.getTitle() + "\n" + s.getArtist() + "\n" + s.getAlbum()).toLowerCase().contains(lower)) {
+                    expected.add(s);
+                }
+            }
+            assertEquals(query, expected, new HashSet<>(index.search(query).keySet()));
+        }
+    }
+
+    /**
+     * Fuzzy search should tolerate typos, rank by the best field, and keep only the best songs.
+     */
+    @Test
+    public void testRank() {
+        Song yesterday = song("a", "Yesterday", "The Beatles", "Help!");
+        Song beetle = song("b", "Beetle", "Somebody", "Bugs");
+        Song beatles = song("c", "Something", "Someone", "Best of the Beatles");
+        Song other = song("d", "Beat It", "Michael Jackson", "Thriller");
+        index.add(yesterday);
+        index.add(beetle);
+        index.add(beatles);
+        index.add(other);
+
+        assertEquals(Arrays.asList(beetle, yesterday, beatles), index.rank("beetles", 10, s -> true));
+        assertEquals(Arrays.asList(beetle, yesterday), index.rank("beetles", 2, s -> true));
+        assertEquals(Arrays.asList(beetle, beatles), index.rank("beetles", 10, s -> s != yesterday));
+        assertEquals(Collections.singletonList(beetle), index.rank("beetle", 10, s -> true));
+        assertEquals(Collections.singletonList(yesterday), index.rank("yesterdya", 10, s -> true));
+        assertEquals(Collections.singletonList(other), index.rank("thriler", 10, s -> true));
+        assertTrue(index.rank("beatle", 0, s -> true).isEmpty());
+        assertTrue(index.rank("", 10, s -> true).isEmpty());
+    }
+
+    /**
+     * Keywords which repeat a trigram should still find their exact matches, with and without a typo.
+     */
+    @Test
+    public void testRankRepeatedTrigrams() {
+        Song lalala = song("a", "Lalala", "", "");
+        Song nanana = song("b", "Na Na Na", "", "Nanana");
+        Song abcabc = song("c", "", "abcabc", "");
+        Song longer = song("d", "Lalalalalala", "", "");
+        index.add(lalala);
+        index.add(nanana);
+        index.add(abcabc);
+        index.add(longer);
+
+        assertEquals(Arrays.asList(lalala, longer), index.rank("lalala", 10, s -> true));
+        assertEquals(Collections.singletonList(nanana), index.rank("nanana", 10, s -> true));
+        assertEquals(Collections.singletonList(abcabc), index.rank("abcabc", 10, s -> true));
+        assertEquals(Collections.singletonList(longer), index.rank("lalalalalal", 10, s -> true));
+        assertEquals(Collections.singletonList(longer), index.rank("lalalxlalala", 10, s -> true));
+    }
+
+    /**
+     * Narrowing down the candidates by their trigrams should never lose a song which a plain scan would rank.
+     */
+    @Test
+    public void testRankAgainstScan() {
+        Random random = new Random(42);
+        List<Song> songs = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Song s = song("s" + i, randomWord(random), randomWord(random), randomWord(random));
+            songs.add(s);
+            index.add(s);
+        }
+        for (int q = 0; q < 200; q++) {
+            String query = randomWord(random).toLowerCase();
+            int bound = query.length() < 7 ? 0 : query.length() < 11 ? 1 : 2;
+            FuzzyMatcher matcher = new FuzzyMatcher(query);
+            Map<Song, Double> scores = new HashMap<>();
+            for (Song s : songs) {
+                String[] fields = {s.getTitle(), s.getArtist(), s.getAlbum()};
+                for (SearchIndex.Field field : SearchIndex.Field.values()) {
+                    int distance = matcher.distance(fields[field.ordinal()].toLowerCase(), bound);
+                    if (distance <= bound) {
+                        scores.merge(s, field.getWeight() * (double) (query.length() - distance) / query.length(),
+                                Math::max);
+                    }
+                }
+            }
+            List<Song> expected = new ArrayList<>(scores.keySet());
+            expected.sort(Comparator.comparing((Song s) -> -scores.get(s)).thenComparing(songs::indexOf));
+            expected = expected.subList(0, Math.min(20, expected.size()));
+            assertEquals(query, expected, index.rank(query, 20, s -> true));
+        }
+    }
+
+    private static String randomWord(Random random) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0, n = 4 + random.nextInt(8); i < n; i++) {
+            sb.append("abcDE ".charAt(random.nextInt(6)));
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.sudicode.tunejar.song;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link SongKeys} class.
+ */
+public class SongKeysTest {
+
+    private static Song song(String name, String title, String artist, String album) {
+        return SongFactory.create(new File(name + ".mp3"), title, artist, album);
+    }
+
+    /**
+     * Search keys should ignore case and accents.
+     */
+    @Test
+    public void testNormalize() {
+        assertEquals("cafe del mar", SongKeys.normalize("Caf\u00e9 del Mar"));
+        assertEquals("cafe del mar", SongKeys.normalize("Cafe\u0301 DEL MAR"));
+        assertEquals("sigur ros", SongKeys.normalize("Sigur R\u00f3s"));
+        assertEquals("motorhead", SongKeys.normalize("Mot\u00f6rhead"));
+        assertEquals("\ud55c\uad6d", SongKeys.normalize("\ud55c\uad6d"));
+        assertEquals("", SongKeys.normalize(null));
+
+        Song song = song("untitled", "", "Beyonc\u00e9", null);
+        assertEquals("untitled.mp3", song.getKeys().getTitle());
+        assertEquals("beyonce", song.getKeys().getArtist());
+        assertEquals("", song.getKeys().getAlbum());
+        assertEquals(SongKeys.normalize(new File("untitled.mp3").getAbsolutePath()), song.getKeys().getPath());
+        assertEquals("mp3", song.getKeys().getFormat());
+    }
+
+    /**
+     * Keys should be computed once, and again after an edit.
+     */
+    @Test
+    public void testCached() {
+        Song song = song("a", "Yesterday", "The Beatles", "Help!");
+        SongKeys keys = song.getKeys();
+        assertSame(keys, song.getKeys());
+
+        song.title.set("Help!");
+        assertNotSame(keys, song.getKeys());
+        assertEquals("help!", song.getKeys().getTitle());
+        assertSame(song.getKeys(), song.getKeys());
+    }
+
+    /**
+     * Sorting should ignore case, and place accented letters next to their base letter.
+     */
+    @Test
+    public void testCollation() {
+        Song b = song("b", "banana", "Zed", "");
+        Song e = song("e", "\u00c9clair", "Zed", "");
+        Song a = song("a", "Apple", "Abba", "");
+        Song z = song("z", "zebra", "Abba", "");
+        Song c = song("c", "Cherry", "Zed", "");
+
+        List<Song> songs = new ArrayList<>(Arrays.asList(b, e, a, z, c));
+        songs.sort(SongKeys.BY_TITLE);
+        assertEquals(Arrays.asList(a, b, c, e, z), songs);
+
+        songs.sort(SongKeys.BY_ARTIST.thenComparing(SongKeys.BY_TITLE.reversed()));
+        assertEquals(Arrays.asList(z, a, e, c, b), songs);
+    }
+
+}
@@ -0,0 +1,150 @@
+package com.sudicode.tunejar.song;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link SongQuery} class.
+ */
+public class SongQueryTest {
+
+    private final SearchIndex index = new SearchIndex();
+    private final List<Song> songs = new ArrayList<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    private Song oneMoreTime;
+    private Song digitalLove;
+    private Song liveAround;
+    private Song aroundWav;
+    private Song loveMeDo;
+
+    private Song song(String name, String title, String artist, String album) {
+        Song song = SongFactory.create(new File(name), title, artist, album);
+        songs.add(song);
+        index.add(song);
+        return song;
+    }
+
+    @Before
+    public void setUp() {
+        oneMoreTime = song("a.mp3", "One More Time", "Daft Punk", "Discovery");
+        digitalLove = song("b.m4a", "Digital Love", "Daft Punk", "Discovery");
+        liveAround = song("c.mp3", "Around the World (Live)", "Daft Punk", "Alive 1997");
+        aroundWav = song("Around the World.wav", "", "", "");
+        loveMeDo = song("d.mp3", "Love Me Do", "The Beatles", "Please Please Me");
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private List<Song> filter(String query) {
+        List<Song> indexed = SongQuery.parse(query).filter(songs, index);
+        assertEquals(query, SongQuery.parse(query).filter(songs, null), indexed);
+        assertEquals(query, SongQuery.parse(query).filter(songs, null, executor, 3), indexed);
+        return indexed;
+    }
+
+    /**
+     * Fields, phrases and negation should combine as in the examples.
+     */
+    @Test
+    public void testQueries() {
+        assertEquals(Arrays.asList(oneMoreTime, digitalLove), filter("artist:\"daft punk\" album:discovery -live"));
+        assertEquals(Collections.singletonList(liveAround), filter("artist:\"daft punk\" -album:discovery"));
+        assertEquals(Arrays.asList(oneMoreTime, liveAround, loveMeDo), filter("format:mp3"));
+        assertEquals(Collections.singletonList(digitalLove), filter("FORMAT:M4A"));
+        assertEquals(Arrays.asList(digitalLove, loveMeDo), filter("love"));
+        assertEquals(Arrays.asList(digitalLove, loveMeDo), filter("title:love"));
+        assertEquals(Arrays.asList(oneMoreTime, digitalLove, liveAround, loveMeDo), filter("daft OR beatles"));
+        assertEquals(Arrays.asList(digitalLove, liveAround, loveMeDo), filter("love OR (live -discovery)"));
+        assertEquals(Arrays.asList(oneMoreTime, digitalLove), filter("daft (digital OR one) OR xyz"));
+        assertEquals(Collections.singletonList(aroundWav), filter("title:\"around the world\" path:.wav"));
+        assertEquals(Collections.singletonList(aroundWav), filter("around -artist:daft"));
+        assertEquals(Collections.singletonList(oneMoreTime), filter("daft -(live OR digital)"));
+        assertEquals(Arrays.asList(aroundWav, loveMeDo), filter("-\"daft punk\""));
+        assertEquals(Collections.singletonList(digitalLove), filter("love -\"me do\""));
+        assertEquals(songs, filter(""));
+        assertTrue(filter("daft -daft").isEmpty());
+        assertTrue(filter("format:mp").isEmpty());
+    }
+
+    /**
+     * Incomplete or odd queries should still compile to something sensible.
+     */
+    @Test
+    public void testLenient() {
+        assertEquals(Arrays.asList(oneMoreTime, digitalLove, liveAround), filter("artist:\"daft pu"));
+        assertEquals(Arrays.asList(oneMoreTime, digitalLove), filter("(daft OR beatles) discovery"));
+        assertEquals(Arrays.asList(oneMoreTime, digitalLove), filter("(discovery"));
+        assertEquals(Arrays.asList(oneMoreTime, digitalLove), filter("discovery)"));
+        assertEquals(songs, filter("artist:"));
+        assertTrue(filter("genre:house").isEmpty());
+        assertEquals(Collections.singletonList(loveMeDo), filter("beatles -"));
+
+        assertTrue(SongQuery.parse("daft punk").isKeyword());
+        assertTrue(SongQuery.parse("genre:house").isKeyword());
+        assertFalse(SongQuery.parse("artist:daft").isKeyword());
+        assertFalse(SongQuery.parse("daft -live").isKeyword());
+        assertFalse(SongQuery.parse("\"daft punk\"").isKeyword());
+        assertFalse(SongQuery.parse("daft OR punk").isKeyword());
+    }
+
+    /**
+     * Keywords should be ranked with typos tolerated, and other queries should keep the original order.
+     */
+    @Test
+    public void testRank() {
+        assertEquals(Arrays.asList(oneMoreTime, digitalLove), SongQuery.parse("dicsovery").rank(songs, index, 10));
+        assertEquals(Collections.singletonList(digitalLove),
+                SongQuery.parse("dicsovery").rank(Collections.singletonList(digitalLove), index, 10));
+        assertEquals(Collections.singletonList(oneMoreTime),
+                SongQuery.parse("artist:daft album:discovery").rank(songs, index, 1));
+    }
+
+    /**
+     * Queries which the index can narrow down should find the same songs as a scan.
+     */
+    @Test
+    public void testAgainstScan() {
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            song("s" + i + (random.nextBoolean() ? ".mp3" : ".m4a"), randomWord(random), randomWord(random),
+                    randomWord(random));
+        }
+        String[] fields = {"", "title:", "artist:", "album:", "-", "-artist:"};
+        for (int q = 0; q < 300; q++) {
+            StringBuilder query = new StringBuilder();
+            for (int t = 0, n = 1 + random.nextInt(3); t < n; t++) {
+                if (t > 0 && random.nextInt(4) == 0) {
+                    query.append(" OR");
+                }
+                query.append(' ').append(fields[random.nextInt(fields.length)]);
+                query.append(randomWord(random).replace(' ', 'a'), 0, 1 + random.nextInt(4));
+            }
+            filter(query.toString());
+        }
+    }
+
+    private static String randomWord(Random random) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0, n = 4 + random.nextInt(8); i < n; i++) {
+            sb.append("abcDE ".charAt(random.nextInt(6)));
+        }
+        return sb.toString();
+    }
+
+}
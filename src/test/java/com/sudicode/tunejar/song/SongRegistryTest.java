@@ -0,0 +1,174 @@
+package com.sudicode.tunejar.song;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link SongRegistry} class.
+ */
+public class SongRegistryTest {
+
+    private final File mp3File = new File("src/test/resources/mp3/AfterDark.mp3");
+    private final File wavFile = new File("src/test/resources/wav/Cute.wav");
+
+    private final AtomicInteger parsed = new AtomicInteger();
+    private SongRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new SongRegistry(file -> {
+            parsed.incrementAndGet();
+            return SongFactory.create(file);
+        });
+    }
+
+    /**
+     * Each file should be parsed once, no matter how its path is spelled.
+     */
+    @Test
+    public void testGet() {
+        Song song = registry.get(wavFile);
+        assertSame(song, registry.get(wavFile));
+        assertSame(song, registry.get(new File("src/test/resources/mp3/../wav/Cute.wav")));
+        assertSame(song, registry.get(wavFile.getAbsoluteFile()));
+        assertEquals(1, parsed.get());
+        assertEquals(1, registry.size());
+    }
+
+    /**
+     * Registered songs should be found without parsing, and replaced by newer songs for the same file.
+     */
+    @Test
+    public void testPutAndLookup() {
+        assertNull(registry.lookup(mp3File));
+        Song song = SongFactory.create(mp3File, "Title", "Artist", "Album");
+        registry.put(song);
+        assertSame(song, registry.lookup(mp3File));
+        assertSame(song, registry.get(mp3File));
+
+        Song modified = SongFactory.create(mp3File, "New Title", "Artist", "Album");
+        registry.put(modified);
+        assertSame(modified, registry.get(mp3File));
+        assertEquals(0, parsed.get());
+    }
+
+    /**
+     * Songs registered together should have their keys computed with the help of the executor, and be searchable.
+     */
+    @Test
+    public void testPutAll() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            SongRegistry parallel = new SongRegistry(SongFactory::create, executor, 3);
+            List<Song> songs = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                songs.add(SongFactory.create(new File(i + ".mp3"), "Title " + i, "Artist", "Album"));
+            }
+            parallel.putAll(songs);
+            assertEquals(10, parallel.size());
+            assertSame(songs.get(7), parallel.lookup(new File("7.mp3")));
+            assertEquals(Collections.singletonList(songs.get(7)),
+                    SongQuery.parse("title:\"title 7\"").filter(parallel.getSongs(), parallel.getSearchIndex()));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The songs of a playlist which are not registered yet should be parsed in batches on the executor, skipping the
+     * ones which cannot be parsed, and reporting progress after each batch.
+     */
+    @Test
+    public void testGetAll() throws InterruptedException {
+        Song mp3 = SongFactory.create(mp3File, "Title", "Artist", "Album");
+        registry.put(mp3);
+        File unsupported = new File("src/test/resources/README.md");
+        List<File> files = Arrays.asList(wavFile, new File("src/test/resources/mp3/../wav/Cute.wav"), unsupported,
+                mp3File, wavFile);
+        List<Integer> progress = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            registry.getAll(files, executor, 2, progress::add);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(3, progress.size());
+        assertEquals(5, (int) progress.get(2));
+        assertNotNull(registry.lookup(wavFile));
+        assertNull(registry.lookup(unsupported));
+        assertSame(mp3, registry.lookup(mp3File));
+        assertEquals(2, registry.size());
+    }
+
+    /**
+     * Removing a directory should unregister every file inside of it.
+     */
+    @Test
+    public void testRemove() {
+        registry.get(wavFile);
+        registry.put(SongFactory.create(mp3File, "Title", "Artist", "Album"));
+        registry.remove(new File("src/test/resources/wav"));
+        assertNull(registry.lookup(wavFile));
+        assertNotNull(registry.lookup(mp3File));
+        registry.remove(mp3File);
+        assertEquals(0, registry.size());
+    }
+
+    /**
+     * Removing several files and directories at once should unregister every file inside of them, and nothing else.
+     */
+    @Test
+    public void testRemoveAll() {
+        registry.get(wavFile);
+        registry.put(SongFactory.create(mp3File, "Title", "Artist", "Album"));
+        File other = new File("src/test/resources/mp3/Other.mp3");
+        registry.put(SongFactory.create(other, "Other", "Artist", "Album"));
+
+        Set<String> removed = new HashSet<>();
+        removed.add(new File("src/test/resources/wav").getAbsolutePath());
+        removed.add(mp3File.getAbsolutePath());
+        removed.add(new File("src/test/resources/mp3/After").getAbsolutePath());
+        registry.removeAll(removed);
+        assertNull(registry.lookup(wavFile));
+        assertNull(registry.lookup(mp3File));
+        assertNotNull(registry.lookup(other));
+        assertEquals(1, registry.getSearchIndex().search("other").size());
+        assertTrue(registry.getSearchIndex().search("title").isEmpty());
+    }
+
+    /**
+     * Retaining the songs found by a scan should unregister the other files inside of the scanned directories, and
+     * nothing outside of them.
+     */
+    @Test
+    public void testRetainAll() {
+        Song wav = registry.get(wavFile);
+        registry.put(SongFactory.create(mp3File, "Title", "Artist", "Album"));
+        File other = new File("src/test/resources/mp3/Other.mp3");
+        Song kept = SongFactory.create(other, "Other", "Artist", "Album");
+        registry.put(kept);
+
+        registry.retainAll(Collections.singleton(new File("src/test/resources/mp3/../mp3")),
+                Collections.singleton(kept));
+        assertSame(wav, registry.lookup(wavFile));
+        assertNull(registry.lookup(mp3File));
+        assertSame(kept, registry.lookup(other));
+        assertTrue(registry.getSearchIndex().search("title").isEmpty());
+        assertEquals(2, registry.size());
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.sudicode.tunejar.song;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link TagCache} class.
+ */
+public class TagCacheTest {
+
+    private File tempDir;
+    private File cacheFile;
+    private File mp3File;
+    private File wavFile;
+
+    /**
+     * Copies the sample files into a temporary directory, so that their modification times can be changed.
+     */
+    @Before
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("TagCacheTest").toFile();
+        cacheFile = new File(tempDir, "tags.cache");
+        mp3File = new File(tempDir, "AfterDark.mp3");
+        wavFile = new File(tempDir, "Cute.wav");
+        FileUtils.copyFile(new File("src/test/resources/mp3/AfterDark.mp3"), mp3File);
+        FileUtils.copyFile(new File("src/test/resources/wav/Cute.wav"), wavFile);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(tempDir);
+    }
+
+    /**
+     * Metadata should survive a save/load round trip.
+     */
+    @Test
+    public void testSaveAndLoad() {
+        TagCache cache = new TagCache(cacheFile);
+        cache.load();
+        assertFalse(cache.isCached(mp3File));
+        cache.get(mp3File);
+        cache.save();
+
+        TagCache reloaded = new TagCache(cacheFile);
+        reloaded.load();
+        assertTrue(reloaded.isCached(mp3File));
+        Song song = reloaded.get(mp3File);
+        assertEquals("After Dark", song.getTitle());
+        assertEquals("Machinimasound", song.getArtist());
+        assertEquals("Machinimasound 2011", song.getAlbum());
+    }
+
+    /**
+     * An entry should no longer be trusted once its file is modified.
+     */
+    @Test
+    public void testModifiedFile() {
+        TagCache cache = new TagCache(cacheFile);
+        cache.get(wavFile);
+        assertTrue(cache.isCached(wavFile));
+        assertTrue(wavFile.setLastModified(wavFile.lastModified() + 10000));
+        assertFalse(cache.isCached(wavFile));
+    }
+
+    /**
+     * Every entry inside of the directories should be turned back into a song after a reload, even if its file is
+     * gone, and the songs should be sorted by path.
+     */
+    @Test
+    public void testGetAll() throws IOException {
+        File outside = new File(tempDir, "outside/Cute.wav");
+        FileUtils.copyFile(wavFile, outside);
+        TagCache cache = new TagCache(cacheFile);
+        cache.get(mp3File);
+        cache.get(wavFile);
+        cache.get(outside);
+        cache.save();
+        assertTrue(mp3File.delete());
+
+        TagCache reloaded = new TagCache(cacheFile);
+        reloaded.load();
+        List<Song> songs = reloaded.getAll(Collections.singleton(tempDir));
+        assertEquals(3, songs.size());
+        assertEquals(mp3File.getAbsolutePath(), songs.get(0).getAbsoluteFilename());
+        assertEquals("After Dark", songs.get(0).getTitle());
+        assertEquals("Machinimasound", songs.get(0).getArtist());
+        assertEquals(wavFile.getAbsolutePath(), songs.get(1).getAbsoluteFilename());
+
+        songs = reloaded.getAll(Arrays.asList(outside.getParentFile(), new File(tempDir, "missing")));
+        assertEquals(1, songs.size());
+        assertEquals(outside.getAbsolutePath(), songs.get(0).getAbsoluteFilename());
+        assertTrue(reloaded.getAll(Collections.emptyList()).isEmpty());
+    }
+
+    /**
+     * Entries which were not requested since the last load should be evicted by a sweep.
+     */
+    @Test
+    public void testSweep() {
+        TagCache cache = new TagCache(cacheFile);
+        cache.get(mp3File);
+        cache.get(wavFile);
+        cache.save();
+
+        cache.load();
+        cache.get(wavFile);
+        cache.sweep(Collections.singleton(tempDir));
+        assertEquals(1, cache.size());
+        assertTrue(cache.isCached(wavFile));
+        assertFalse(cache.isCached(mp3File));
+    }
+
+    /**
+     * Entries outside of the scanned directories, such as those of an offline directory, should survive a sweep.
+     */
+    @Test
+    public void testSweepOffline() throws IOException {
+        File offline = new File(tempDir, "offline");
+        File offlineFile = new File(offline, "Cute.wav");
+        FileUtils.copyFile(wavFile, offlineFile);
+        TagCache cache = new TagCache(cacheFile);
+        cache.get(mp3File);
+        cache.get(offlineFile);
+        cache.save();
+
+        cache.load();
+        cache.sweep(Collections.singleton(new File(tempDir, "online")));
+        assertEquals(2, cache.size());
+        cache.sweep(Collections.singleton(offline));
+        assertEquals(1, cache.size());
+        assertTrue(cache.isCached(mp3File));
+        assertFalse(cache.isCached(offlineFile));
+    }
+
+}
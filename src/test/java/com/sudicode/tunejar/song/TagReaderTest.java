@@ -0,0 +1,134 @@
+package com.sudicode.tunejar.song;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link TagReader} class.
+ */
+public class TagReaderTest {
+
+    private File tempFile;
+
+    @Before
+    public void setUp() throws IOException {
+        tempFile = File.createTempFile("TagReaderTest", ".mp3");
+    }
+
+    /**
+     * The reader should not leave the file open or locked, so it can be deleted right away.
+     */
+    @After
+    public void tearDown() {
+        assertTrue(tempFile.delete());
+    }
+
+    /**
+     * Reads the ID3v2.3 tag of the MP3 test resource.
+     */
+    @Test
+    public void testMp3() {
+        TagReader.Tags tags = TagReader.readMp3(new File("src/test/resources/mp3/AfterDark.mp3"));
+        assertNotNull(tags);
+        assertEquals("After Dark", tags.title);
+        assertEquals("Machinimasound", tags.artist);
+        assertEquals("Machinimasound 2011", tags.album);
+    }
+
+    /**
+     * Reads the ilst atom of the MP4 test resource, whose moov atom comes after the audio data.
+     */
+    @Test
+    public void testMp4() {
+        TagReader.Tags tags = TagReader.readMp4(new File("src/test/resources/mp4/CrunkKnight.m4a"));
+        assertNotNull(tags);
+        assertEquals("Crunk Knight", tags.title);
+        assertEquals("Kevin MacLeod", tags.artist);
+        assertEquals("Oddities", tags.album);
+    }
+
+    /**
+     * ID3v2.4 uses synchsafe frame sizes, and may use any of the text encodings.
+     */
+    @Test
+    public void testId3v24() throws IOException {
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        frame(frames, "TIT2", 3, "Caf\u00e9".getBytes(StandardCharsets.UTF_8));
+        frame(frames, "TPE1", 1, "Artist\u0000Other".getBytes(StandardCharsets.UTF_16));
+        frame(frames, "TALB", 2, "Album".getBytes(StandardCharsets.UTF_16BE));
+        frames.write(new byte[64]); // Padding
+        Files.write(tempFile.toPath(), id3v2(4, 0, frames.toByteArray()));
+
+        TagReader.Tags tags = TagReader.readMp3(tempFile);
+        assertNotNull(tags);
+        assertEquals("Caf\u00e9", tags.title);
+        assertEquals("Artist", tags.artist);
+        assertEquals("Album", tags.album);
+    }
+
+    /**
+     * Files without an ID3v2 tag should fall back to the ID3v1 trailer.
+     */
+    @Test
+    public void testId3v1() throws IOException {
+        byte[] bytes = new byte[1024];
+        int trailer = bytes.length - 128;
+        System.arraycopy("TAG".getBytes(StandardCharsets.ISO_8859_1), 0, bytes, trailer, 3);
+        System.arraycopy("Title  ".getBytes(StandardCharsets.ISO_8859_1), 0, bytes, trailer + 3, 7);
+        System.arraycopy("Artist".getBytes(StandardCharsets.ISO_8859_1), 0, bytes, trailer + 33, 6);
+        System.arraycopy("Album".getBytes(StandardCharsets.ISO_8859_1), 0, bytes, trailer + 63, 5);
+        Files.write(tempFile.toPath(), bytes);
+
+        TagReader.Tags tags = TagReader.readMp3(tempFile);
+        assertNotNull(tags);
+        assertEquals("Title", tags.title);
+        assertEquals("Artist", tags.artist);
+        assertEquals("Album", tags.album);
+    }
+
+    /**
+     * Unsynchronised tags are left to jaudiotagger.
+     */
+    @Test
+    public void testUnsynchronisation() throws IOException {
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        frame(frames, "TIT2", 0, "Title".getBytes(StandardCharsets.ISO_8859_1));
+        Files.write(tempFile.toPath(), id3v2(3, 0x80, frames.toByteArray()));
+        assertNull(TagReader.readMp3(tempFile));
+    }
+
+    private static void frame(ByteArrayOutputStream out, String id, int encoding, byte[] text) throws IOException {
+        out.write(id.getBytes(StandardCharsets.ISO_8859_1));
+        out.write(syncsafe(text.length + 1));
+        out.write(new byte[2]);
+        out.write(encoding);
+        out.write(text);
+    }
+
+    private static byte[] id3v2(int version, int flags, byte[] frames) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write("ID3".getBytes(StandardCharsets.ISO_8859_1));
+        out.write(version);
+        out.write(0);
+        out.write(flags);
+        out.write(syncsafe(frames.length));
+        out.write(frames);
+        out.write(new byte[256]); // Audio
+        return out.toByteArray();
+    }
+
+    private static byte[] syncsafe(int n) {
+        return new byte[] {(byte) ((n >> 21) & 0x7F), (byte) ((n >> 14) & 0x7F), (byte) ((n >> 7) & 0x7F),
+                (byte) (n & 0x7F)};
+    }
+
+}